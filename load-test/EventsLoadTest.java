@@ -0,0 +1,126 @@
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.time.Duration;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.stream.Collectors;
+
+/**
+ * Closed-loop load test of the public event search. Each of {@code concurrency} clients sends
+ * GET requests one after another for {@code warmup} plus {@code duration} seconds; only responses
+ * received after the warmup are counted. Prints throughput, latency percentiles and errors.
+ * Runs with the JDK alone:
+ *
+ * <pre>
+ * java load-test/EventsLoadTest.java url=http://localhost:8080/events?from=0&amp;size=10 concurrency=200 duration=30
+ * </pre>
+ */
+public class EventsLoadTest {
+    private static final Map<String, String> DEFAULTS = Map.of(
+            "url", "http://localhost:8080/events?from=0&size=10",
+            "concurrency", "200",
+            "warmup", "10",
+            "duration", "30",
+            "timeout", "10");
+
+    public static void main(String[] args) {
+        Map<String, String> options = parse(args);
+        URI uri = URI.create(options.get("url"));
+        int concurrency = Integer.parseInt(options.get("concurrency"));
+        long warmupNanos = Duration.ofSeconds(Long.parseLong(options.get("warmup"))).toNanos();
+        long durationNanos = Duration.ofSeconds(Long.parseLong(options.get("duration"))).toNanos();
+        Duration timeout = Duration.ofSeconds(Long.parseLong(options.get("timeout")));
+
+        HttpClient client = HttpClient.newBuilder()
+                .version(HttpClient.Version.HTTP_1_1)
+                .connectTimeout(timeout)
+                .build();
+        HttpRequest request = HttpRequest.newBuilder(uri).timeout(timeout).GET().build();
+
+        long start = System.nanoTime();
+        long measureFrom = start + warmupNanos;
+        long measureTo = measureFrom + durationNanos;
+        Recorder[] recorders = new Recorder[concurrency];
+        AtomicLong errors = new AtomicLong();
+
+        try (ExecutorService clients = Executors.newVirtualThreadPerTaskExecutor()) {
+            for (int i = 0; i < concurrency; i++) {
+                Recorder recorder = new Recorder();
+                recorders[i] = recorder;
+                clients.execute(() -> {
+                    long sent;
+                    while ((sent = System.nanoTime()) < measureTo) {
+                        boolean ok;
+                        try {
+                            ok = client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode() == 200;
+                        } catch (Exception e) {
+                            ok = false;
+                        }
+                        long received = System.nanoTime();
+                        if (received >= measureFrom && received < measureTo) {
+                            if (ok) {
+                                recorder.add(received - sent);
+                            } else {
+                                errors.incrementAndGet();
+                            }
+                        }
+                    }
+                });
+            }
+        }
+
+        long[] all = Arrays.stream(recorders).flatMapToLong(recorder -> Arrays.stream(recorder.toArray())).sorted().toArray();
+        double seconds = durationNanos / 1e9;
+        System.out.printf("url=%s concurrency=%d duration=%ds%n", uri, concurrency, durationNanos / 1_000_000_000);
+        System.out.printf("requests=%d errors=%d throughput=%.1f req/s%n", all.length, errors.get(), all.length / seconds);
+        if (all.length > 0) {
+            System.out.printf("latency ms: mean=%.2f p50=%.2f p90=%.2f p99=%.2f max=%.2f%n",
+                    Arrays.stream(all).average().orElse(0) / 1e6,
+                    percentile(all, 0.50), percentile(all, 0.90), percentile(all, 0.99), all[all.length - 1] / 1e6);
+        }
+    }
+
+    private static double percentile(long[] sorted, double quantile) {
+        int index = (int) Math.ceil(quantile * sorted.length) - 1;
+        return sorted[Math.max(index, 0)] / 1e6;
+    }
+
+    private static Map<String, String> parse(String[] args) {
+        Map<String, String> options = new HashMap<>(DEFAULTS);
+        Map<String, String> given = Arrays.stream(args)
+                .map(arg -> arg.split("=", 2))
+                .collect(Collectors.toMap(pair -> pair[0], pair -> pair.length > 1 ? pair[1] : ""));
+        for (String name : given.keySet()) {
+            if (!DEFAULTS.containsKey(name)) {
+                throw new IllegalArgumentException("Unknown option " + name + ", expected one of " + DEFAULTS.keySet());
+            }
+        }
+        options.putAll(given);
+        return options;
+    }
+
+    /**
+     * Latencies of one client, so clients never contend on a shared buffer.
+     */
+    private static final class Recorder {
+        private long[] values = new long[1024];
+        private int size;
+
+        private void add(long value) {
+            if (size == values.length) {
+                values = Arrays.copyOf(values, size * 2);
+            }
+            values[size++] = value;
+        }
+
+        private long[] toArray() {
+            return Arrays.copyOf(values, size);
+        }
+    }
+}
@@ -0,0 +1,46 @@
+#!/bin/bash
+# Runs EventsLoadTest against main-service with virtual threads off and on.
+# Needs the main-service jar (mvn package) and running databases and stats-server,
+# e.g. docker-compose up -d ewm-db stats-db stats-server.
+# Uses $JAVA_HOME/bin/java when JAVA_HOME is set; JDK 21 or later is required.
+# main-service recreates its schema on start, so each run first publishes EVENTS events (50 by default).
+# Extra main-service arguments go in MAIN_ARGS, load test options are passed through:
+#   MAIN_ARGS="--spring.datasource.url=jdbc:postgresql://localhost:5432/main" load-test/run.sh concurrency=400
+set -euo pipefail
+
+cd "$(dirname "$0")/.."
+JAR=main-service/target/main-service-0.0.1-SNAPSHOT.jar
+JAVA="${JAVA_HOME:+$JAVA_HOME/bin/}java"
+BASE=http://localhost:8080
+mkdir -p target
+
+post() {
+  curl -sf -X "$1" -H 'Content-Type: application/json' -d "$3" "$BASE$2" | grep -o '"id":[0-9]*' | head -1 | cut -d: -f2
+}
+
+seed() {
+  local user category event
+  user=$(post POST /admin/users '{"name":"Load Test","email":"load@test.com"}')
+  category=$(post POST /admin/categories '{"name":"load-test"}')
+  for i in $(seq 1 "${EVENTS:-50}"); do
+    event=$(post POST "/users/$user/events" '{"annotation":"Load test event annotation","category":'"$category"',
+      "description":"Load test event description","eventDate":"2099-01-01 10:00:00",
+      "location":{"lat":55.75,"lon":37.62},"title":"Load test event '"$i"'"}')
+    post PATCH "/admin/events/$event" '{"stateAction":"PUBLISH_EVENT"}' > /dev/null
+  done
+}
+
+for virtual in false true; do
+  "$JAVA" -jar "$JAR" --spring.threads.virtual.enabled="$virtual" ${MAIN_ARGS:-} > "target/load-test-main-$virtual.log" 2>&1 &
+  pid=$!
+  trap 'kill $pid 2>/dev/null' EXIT
+  until curl -s -o /dev/null "$BASE/categories"; do
+    kill -0 "$pid" || { echo "main-service failed to start, see target/load-test-main-$virtual.log"; exit 1; }
+    sleep 1
+  done
+  seed
+  echo "spring.threads.virtual.enabled=$virtual"
+  "$JAVA" load-test/EventsLoadTest.java "$@"
+  kill "$pid"
+  wait "$pid" || true
+done
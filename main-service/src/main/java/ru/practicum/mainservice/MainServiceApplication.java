@@ -2,8 +2,10 @@ package ru.practicum.mainservice;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.context.properties.ConfigurationPropertiesScan;
 
 @SpringBootApplication(scanBasePackages = {"ru.practicum.client", "ru.practicum.mainservice"})
+@ConfigurationPropertiesScan
 public class MainServiceApplication {
 
     public static void main(String[] args) {
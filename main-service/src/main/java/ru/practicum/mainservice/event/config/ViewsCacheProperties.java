@@ -0,0 +1,35 @@
+package ru.practicum.mainservice.event.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "events.views-cache")
+public class ViewsCacheProperties {
+
+    /**
+     * Whether view counts are cached at all.
+     */
+    boolean enabled = true;
+
+    /**
+     * Largest number of events whose view counts are cached. The least recently used entries are evicted first.
+     */
+    int maxSize = 10_000;
+
+    /**
+     * How long a cached count is served as is. After that it is still served, while one background
+     * request per event fetches a new count.
+     */
+    Duration ttl = Duration.ofSeconds(5);
+
+    /**
+     * Age after which a cached count is no longer served and has to be fetched before responding.
+     */
+    Duration maxStale = Duration.ofMinutes(5);
+}
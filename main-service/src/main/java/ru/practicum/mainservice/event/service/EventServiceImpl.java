@@ -43,6 +43,7 @@ import ru.practicum.mainservice.util.Util;
 import java.time.LocalDateTime;
 import java.util.Collection;
 import java.util.List;
+import java.util.Map;
 
 import static ru.practicum.mainservice.event.specification.EventSpecification.getAdminFilters;
 import static ru.practicum.mainservice.event.specification.EventSpecification.getPublicFilters;
@@ -95,14 +96,9 @@ public class EventServiceImpl implements EventService {
         Page<Event> events = eventRepository.findAll(spec, pageable);
         statisticsServiceForEvent.sendStatisticalData(request);
 
-        List<Event> eventList = events.getContent().stream()
-                .map(event -> {
-                    Long views = statisticsServiceForEvent.getUniqueViews(event, request.getRequestURI()) + 1;
-                    event.setViews(views);
-                    return event;
-                })
-                .toList();
-
+        List<Event> eventList = events.getContent();
+        Map<Long, Long> views = statisticsServiceForEvent.getUniqueViews(eventList);
+        eventList.forEach(event -> event.setViews(views.get(event.getId())));
 
         eventRepository.saveAll(eventList);
 
@@ -121,7 +117,7 @@ public class EventServiceImpl implements EventService {
             throw new NotFoundException(Util.eventNotFound(eventId));
         }
 
-        Long views = statisticsServiceForEvent.getUniqueViews(event, request.getRequestURI());
+        Long views = statisticsServiceForEvent.getUniqueViews(event);
         views++;
         event.setViews(views);
 
@@ -0,0 +1,191 @@
+package ru.practicum.mainservice.event.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.stereotype.Component;
+import ru.practicum.mainservice.event.config.ViewsCacheProperties;
+import ru.practicum.mainservice.event.model.Event;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.function.Function;
+
+/**
+ * Size-bounded LRU cache of unique view counts keyed by event id, serving stale counts while they are refreshed.
+ * A count younger than {@code ttl} is served as is. An older one is still served, and the first request that
+ * sees it starts a background refresh, so there is at most one refresh per event at a time. Counts older than
+ * {@code maxStale} and events not in the cache are loaded before responding, in one request for all of them.
+ */
+@Slf4j
+@Component
+public class EventViewsCache {
+    private final LinkedHashMap<Long, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final ExecutorService refresher = Executors.newVirtualThreadPerTaskExecutor();
+    private final boolean enabled;
+    private final int maxSize;
+    private final long ttlNanos;
+    private final long maxStaleNanos;
+    private final Counter freshHits;
+    private final Counter staleHits;
+    private final Counter misses;
+    private final Counter refreshes;
+    private final Counter failedRefreshes;
+    private final Counter evictions;
+
+    public EventViewsCache(ViewsCacheProperties viewsCacheProperties, MeterRegistry meterRegistry) {
+        this.enabled = viewsCacheProperties.isEnabled();
+        this.maxSize = viewsCacheProperties.getMaxSize();
+        this.ttlNanos = viewsCacheProperties.getTtl().toNanos();
+        this.maxStaleNanos = viewsCacheProperties.getMaxStale().toNanos();
+        this.freshHits = Counter.builder("events.views.cache.gets")
+                .tag("result", "hit")
+                .description("View counts served from the cache within their TTL")
+                .register(meterRegistry);
+        this.staleHits = Counter.builder("events.views.cache.gets")
+                .tag("result", "stale")
+                .description("View counts served from the cache after their TTL")
+                .register(meterRegistry);
+        this.misses = Counter.builder("events.views.cache.gets")
+                .tag("result", "miss")
+                .description("View counts loaded from the stats server before responding")
+                .register(meterRegistry);
+        this.refreshes = Counter.builder("events.views.cache.refreshes")
+                .tag("result", "success")
+                .description("View counts refreshed in the background")
+                .register(meterRegistry);
+        this.failedRefreshes = Counter.builder("events.views.cache.refreshes")
+                .tag("result", "failure")
+                .description("View counts whose background refresh failed")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("events.views.cache.evictions")
+                .description("Cached view counts evicted by the size limit")
+                .register(meterRegistry);
+        Gauge.builder("events.views.cache.size", this, EventViewsCache::size)
+                .description("Cached view counts")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Returns view counts of events, loading the missing ones and refreshing the stale ones.
+     *
+     * @param events events to look up.
+     * @param loader loads view counts of several events in one request, including events without views.
+     * @return unique views per event id.
+     */
+    public Map<Long, Long> get(Collection<Event> events, Function<Collection<Event>, Map<Long, Long>> loader) {
+        if (!enabled) {
+            return loader.apply(events);
+        }
+        Map<Long, Long> views = new HashMap<>();
+        List<Event> missing = new ArrayList<>();
+        List<Event> stale = new ArrayList<>();
+        int fresh = 0;
+        int served = 0;
+        long now = System.nanoTime();
+        synchronized (this) {
+            for (Event event : events) {
+                Entry entry = entries.get(event.getId());
+                long age = entry != null ? now - entry.loadedAt : Long.MAX_VALUE;
+                if (age > maxStaleNanos) {
+                    missing.add(event);
+                    continue;
+                }
+                views.put(event.getId(), entry.views);
+                if (age <= ttlNanos) {
+                    fresh++;
+                    continue;
+                }
+                served++;
+                if (!entry.refreshing) {
+                    entry.refreshing = true;
+                    stale.add(event);
+                }
+            }
+        }
+        freshHits.increment(fresh);
+        staleHits.increment(served);
+        misses.increment(missing.size());
+
+        if (!stale.isEmpty()) {
+            refresher.execute(() -> refresh(stale, loader));
+        }
+        if (!missing.isEmpty()) {
+            Map<Long, Long> loaded = loader.apply(missing);
+            put(loaded, now);
+            views.putAll(loaded);
+        }
+        return views;
+    }
+
+    /**
+     * Waits for running refreshes to finish.
+     */
+    @PreDestroy
+    public void close() {
+        refresher.close();
+    }
+
+    private void refresh(List<Event> events, Function<Collection<Event>, Map<Long, Long>> loader) {
+        long start = System.nanoTime();
+        try {
+            put(loader.apply(events), start);
+            refreshes.increment(events.size());
+        } catch (RuntimeException e) {
+            failedRefreshes.increment(events.size());
+            log.warn("Failed to refresh views of {} events: {}", events.size(), e.getMessage());
+            synchronized (this) {
+                for (Event event : events) {
+                    Entry entry = entries.get(event.getId());
+                    if (entry != null) {
+                        entry.refreshing = false;
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Caches loaded counts, unless a count loaded later is already cached.
+     *
+     * @param loadedAt time the load started, so the TTL also covers the time spent loading.
+     */
+    private synchronized void put(Map<Long, Long> views, long loadedAt) {
+        views.forEach((eventId, count) -> {
+            Entry entry = entries.get(eventId);
+            if (entry == null || entry.loadedAt - loadedAt <= 0) {
+                entries.put(eventId, new Entry(count, loadedAt));
+            }
+        });
+        Iterator<Long> eldest = entries.keySet().iterator();
+        while (entries.size() > maxSize) {
+            eldest.next();
+            eldest.remove();
+            evictions.increment();
+        }
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private static final class Entry {
+        private final long views;
+        private final long loadedAt;
+        private boolean refreshing;
+
+        private Entry(long views, long loadedAt) {
+            this.views = views;
+            this.loadedAt = loadedAt;
+        }
+    }
+}
@@ -3,9 +3,27 @@ package ru.practicum.mainservice.event.service;
 import jakarta.servlet.http.HttpServletRequest;
 import ru.practicum.mainservice.event.model.Event;
 
+import java.util.Collection;
+import java.util.Map;
+
 
 public interface StatisticsServiceForEvent {
     void sendStatisticalData(HttpServletRequest request);
 
-    Long getUniqueViews(Event event, String uri);
+    /**
+     * Looks up unique views of {@code /events/{id}}. The count may be a few seconds old.
+     *
+     * @param event event to look up.
+     * @return unique views of the event.
+     */
+    Long getUniqueViews(Event event);
+
+    /**
+     * Looks up unique views of several events, with one request to the stats server for all counts
+     * that are not cached. Counts may be a few seconds old.
+     *
+     * @param events events to look up.
+     * @return unique views of {@code /events/{id}} per event id, including events without views.
+     */
+    Map<Long, Long> getUniqueViews(Collection<Event> events);
 }
@@ -1,9 +1,6 @@
 package ru.practicum.mainservice.event.service;
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
 import lombok.RequiredArgsConstructor;
 import org.springframework.beans.factory.annotation.Value;
-import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
 import ru.practicum.client.StatsClient;
 import ru.practicum.dto.EndpointHitDto;
@@ -13,13 +10,19 @@ import ru.practicum.mainservice.util.Util;
 
 import jakarta.servlet.http.HttpServletRequest;
 import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 
 @Service
 @RequiredArgsConstructor
 public class StatisticsServiceForEventImpl implements StatisticsServiceForEvent {
+    private static final String EVENT_URI_PREFIX = "/events/";
+
     private final StatsClient statsClient;
-    private final ObjectMapper objectMapper;
+    private final EventViewsCache eventViewsCache;
     @Value("${spring.application.name}")
     private String serviceId;
 
@@ -32,31 +35,44 @@ public class StatisticsServiceForEventImpl implements StatisticsServiceForEvent
                 .timestamp(LocalDateTime.now())
                 .build();
 
-        statsClient.create(stat);
+        statsClient.send(stat);
     }
 
     @Override
-    public Long getUniqueViews(Event event, String uri) {
-        String startDate = event.getCreatedOn().format(Util.DATE_TIME_FORMATTER);
-        String endDate = LocalDateTime.now().format(Util.DATE_TIME_FORMATTER);
-        List<String> uris = List.of(uri);
-
-        List<ViewStatsDto> stats = convertResponseToList(statsClient.getStats(startDate, endDate, uris, true));
+    public Long getUniqueViews(Event event) {
+        return getUniqueViews(List.of(event)).get(event.getId());
+    }
 
-        return stats.isEmpty()
-                ? 0L
-                : stats.stream().mapToLong(ViewStatsDto::getHits).sum();
+    @Override
+    public Map<Long, Long> getUniqueViews(Collection<Event> events) {
+        if (events.isEmpty()) {
+            return Map.of();
+        }
+        return eventViewsCache.get(events, this::loadUniqueViews);
     }
 
-    private List<ViewStatsDto> convertResponseToList(ResponseEntity<Object> response) {
-        if (response.getBody() == null) {
-            return List.of();
+    private Map<Long, Long> loadUniqueViews(Collection<Event> events) {
+        Map<Long, Long> views = new HashMap<>();
+        Map<String, Long> eventIds = new HashMap<>();
+        for (Event event : events) {
+            eventIds.put(EVENT_URI_PREFIX + event.getId(), event.getId());
+            views.put(event.getId(), 0L);
         }
-        try {
-            return objectMapper.convertValue(response.getBody(), new TypeReference<>() {
-            });
-        } catch (Exception e) {
-            throw new IllegalStateException("Failed to convert response to list", e);
+        LocalDateTime earliest = events.stream()
+                .map(Event::getCreatedOn)
+                .min(Comparator.naturalOrder())
+                .orElseThrow();
+        String startDate = earliest.format(Util.DATE_TIME_FORMATTER);
+        String endDate = LocalDateTime.now().format(Util.DATE_TIME_FORMATTER);
+
+        List<ViewStatsDto> stats = statsClient.findStats(startDate, endDate, List.copyOf(eventIds.keySet()), true);
+
+        for (ViewStatsDto stat : stats) {
+            Long eventId = eventIds.get(stat.getUri());
+            if (eventId != null) {
+                views.merge(eventId, stat.getHits(), Long::sum);
+            }
         }
+        return views;
     }
 }
@@ -0,0 +1,102 @@
+package ru.practicum.client;
+
+import com.fasterxml.jackson.core.type.TypeReference;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.sun.net.httpserver.HttpServer;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+import org.springframework.boot.web.client.RestTemplateBuilder;
+import org.springframework.http.ResponseEntity;
+import ru.practicum.dto.ViewStatsDto;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.net.InetAddress;
+import java.net.InetSocketAddress;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.IntStream;
+
+/**
+ * Compares reading stats as a generic body converted with {@link ObjectMapper#convertValue}, as callers
+ * of {@link StatsClient#getStats} do, with reading them straight into DTOs through {@link StatsClient#findStats}.
+ * Both run against an in-process HTTP server that returns {@code rows} stats, so the difference is the
+ * client-side decoding. The server disables Nagle's algorithm, otherwise every response waits for a
+ * delayed ACK. Run with {@code -prof gc} to see the allocation per call.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.SampleTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(value = 1, jvmArgsAppend = "-Dsun.net.httpserver.nodelay=true")
+public class StatsClientBenchmark {
+    private static final String START = "2026-01-01 00:00:00";
+    private static final String END = "2026-12-31 23:59:59";
+    private static final List<String> URIS = List.of("/events");
+    private static final TypeReference<List<ViewStatsDto>> VIEW_STATS_LIST = new TypeReference<>() {
+    };
+
+    @Param({"10", "1000"})
+    int rows;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+    private ExecutorService serverExecutor;
+    private HttpServer server;
+    private StatsClient statsClient;
+
+    @Setup(Level.Trial)
+    public void start() throws IOException {
+        List<ViewStatsDto> stats = IntStream.range(0, rows)
+                .mapToObj(i -> new ViewStatsDto("ewm-main-service", "/events/" + i, 1_000L + i))
+                .toList();
+        byte[] body = objectMapper.writeValueAsBytes(stats);
+
+        serverExecutor = Executors.newFixedThreadPool(2);
+        server = HttpServer.create(new InetSocketAddress(InetAddress.getLoopbackAddress(), 0), 0);
+        server.createContext("/stats", exchange -> {
+            exchange.getResponseHeaders().set("Content-Type", "application/json");
+            exchange.sendResponseHeaders(200, body.length);
+            try (OutputStream out = exchange.getResponseBody()) {
+                out.write(body);
+            }
+        });
+        server.setExecutor(serverExecutor);
+        server.start();
+
+        StatsClientProperties properties = new StatsClientProperties();
+        properties.setUrl("http://" + server.getAddress().getHostString() + ":" + server.getAddress().getPort());
+        statsClient = new StatsClient(new RestTemplateBuilder(), properties, objectMapper);
+    }
+
+    @TearDown(Level.Trial)
+    public void stop() {
+        statsClient.close();
+        server.stop(0);
+        serverExecutor.shutdownNow();
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> getStatsAndConvert() {
+        ResponseEntity<Object> response = statsClient.getStats(START, END, URIS, false);
+        return objectMapper.convertValue(response.getBody(), VIEW_STATS_LIST);
+    }
+
+    @Benchmark
+    public List<ViewStatsDto> findStats() {
+        return statsClient.findStats(START, END, URIS, false);
+    }
+}
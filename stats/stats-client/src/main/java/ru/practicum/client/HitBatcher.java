@@ -0,0 +1,305 @@
+package ru.practicum.client;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.lang.Nullable;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.io.BufferedReader;
+import java.io.BufferedWriter;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.function.Predicate;
+
+/**
+ * Collects hits into a bounded buffer and sends them in batches from a dedicated thread,
+ * either when {@code maxSize} hits have accumulated or when {@code flushInterval} has passed.
+ * Hits that do not fit into the buffer are handled by the configured {@link StatsClientProperties.OverflowPolicy}.
+ * With the {@code spill} policy, hits that could not be buffered or sent are appended to a file
+ * and sent once the buffer has drained, including after a restart.
+ */
+@Slf4j
+class HitBatcher implements AutoCloseable {
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+    private static final long REPLAY_RETRY_NANOS = TimeUnit.SECONDS.toNanos(5);
+    private static final long POLL_NANOS = TimeUnit.MILLISECONDS.toNanos(100);
+
+    private final BlockingQueue<EndpointHitDto> buffer;
+    private final Predicate<List<EndpointHitDto>> sender;
+    private final ObjectReader hitReader;
+    private final ObjectWriter hitWriter;
+    private final int maxSize;
+    private final long flushIntervalNanos;
+    private final StatsClientProperties.OverflowPolicy overflow;
+    private final long blockTimeoutNanos;
+    private final Path spillFile;
+    private final Path replayFile;
+    private final ReentrantLock spillLock = new ReentrantLock();
+    private final Thread writer;
+    private BufferedWriter spillWriter;
+    private volatile boolean spilled;
+    private long nextReplay = System.nanoTime();
+    private volatile boolean running = true;
+
+    /**
+     * @param properties   Batch size, interval, buffer capacity and overflow policy.
+     * @param sender       Sends one batch, returning false when it should be retried later.
+     * @param objectMapper Mapper used to write and read the spill file.
+     */
+    HitBatcher(StatsClientProperties.Batch properties,
+               Predicate<List<EndpointHitDto>> sender,
+               ObjectMapper objectMapper) {
+        this.buffer = new ArrayBlockingQueue<>(properties.getCapacity());
+        this.sender = sender;
+        this.hitReader = objectMapper.readerFor(EndpointHitDto.class);
+        this.hitWriter = objectMapper.writerFor(EndpointHitDto.class);
+        this.maxSize = properties.getMaxSize();
+        this.flushIntervalNanos = properties.getFlushInterval().toNanos();
+        this.overflow = properties.getOverflow();
+        this.blockTimeoutNanos = properties.getBlockTimeout().toNanos();
+        this.spillFile = properties.getSpillFile();
+        this.replayFile = spillFile.resolveSibling(spillFile.getFileName() + ".sending");
+        this.spilled = Files.exists(spillFile) || Files.exists(replayFile);
+        this.writer = new Thread(this::drainLoop, "stats-client-batcher");
+        writer.start();
+    }
+
+    /**
+     * Adds a hit to the next batch. Depending on the overflow policy a full buffer drops the oldest hit,
+     * makes the caller wait or spills the hit to disk.
+     *
+     * @param hit Hit to send.
+     */
+    void add(EndpointHitDto hit) {
+        switch (overflow) {
+            case DROP_OLDEST -> {
+                while (!buffer.offer(hit)) {
+                    EndpointHitDto dropped = buffer.poll();
+                    if (dropped != null) {
+                        log.warn("Hit buffer is full, dropping hit for uri {}", dropped.getUri());
+                    }
+                }
+            }
+            case BLOCK -> {
+                try {
+                    if (!buffer.offer(hit, blockTimeoutNanos, TimeUnit.NANOSECONDS)) {
+                        log.warn("Hit buffer is full, dropping hit for uri {}", hit.getUri());
+                    }
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                    log.warn("Interrupted while waiting for the hit buffer, dropping hit for uri {}", hit.getUri());
+                }
+            }
+            case SPILL -> {
+                if (!buffer.offer(hit)) {
+                    spill(List.of(hit));
+                }
+            }
+        }
+    }
+
+    /**
+     * Stops the sender thread and waits until the remaining buffered hits are sent.
+     */
+    @Override
+    public void close() {
+        running = false;
+        try {
+            writer.join(SHUTDOWN_TIMEOUT_MS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+        spillLock.lock();
+        try {
+            closeSpillWriter();
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    private void drainLoop() {
+        List<EndpointHitDto> batch = new ArrayList<>(maxSize);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                long wait = deadline - System.nanoTime();
+                EndpointHitDto hit = wait > 0 ? buffer.poll(Math.min(wait, POLL_NANOS), TimeUnit.NANOSECONDS) : null;
+                if (hit != null) {
+                    batch.add(hit);
+                    buffer.drainTo(batch, maxSize - batch.size());
+                }
+                if (batch.size() >= maxSize || System.nanoTime() >= deadline) {
+                    flush(batch);
+                    if (spilled && running && buffer.isEmpty() && System.nanoTime() - nextReplay >= 0) {
+                        replaySpill();
+                    }
+                    deadline = System.nanoTime() + flushIntervalNanos;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            } catch (RuntimeException e) {
+                log.error("Failed to send batched hits, retrying later", e);
+                nextReplay = System.nanoTime() + REPLAY_RETRY_NANOS;
+                deadline = System.nanoTime() + flushIntervalNanos;
+            }
+        }
+        buffer.drainTo(batch);
+        for (int from = 0; from < batch.size(); from += maxSize) {
+            List<EndpointHitDto> part = new ArrayList<>(batch.subList(from, Math.min(from + maxSize, batch.size())));
+            flush(part);
+        }
+    }
+
+    private void flush(List<EndpointHitDto> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        if (!send(batch)) {
+            if (overflow == StatsClientProperties.OverflowPolicy.SPILL) {
+                spill(batch);
+            } else {
+                log.warn("Dropping {} hits the stats server did not accept", batch.size());
+            }
+        }
+        batch.clear();
+    }
+
+    private boolean send(List<EndpointHitDto> batch) {
+        try {
+            return sender.test(batch);
+        } catch (RuntimeException e) {
+            log.warn("Failed to send {} hits to the stats server: {}", batch.size(), e.getMessage());
+            return false;
+        }
+    }
+
+    /**
+     * Appends hits to the spill file, one JSON object per line.
+     */
+    private void spill(List<EndpointHitDto> hits) {
+        spillLock.lock();
+        try {
+            if (spillWriter == null) {
+                spillWriter = Files.newBufferedWriter(spillFile, StandardOpenOption.CREATE, StandardOpenOption.APPEND);
+            }
+            for (EndpointHitDto hit : hits) {
+                spillWriter.write(hitWriter.writeValueAsString(hit));
+                spillWriter.newLine();
+            }
+            spillWriter.flush();
+            spilled = true;
+        } catch (IOException e) {
+            log.error("Failed to spill {} hits to {}", hits.size(), spillFile, e);
+        } finally {
+            spillLock.unlock();
+        }
+    }
+
+    /**
+     * Sends the spilled hits in batches. The spill file is first moved aside, so new hits can be spilled
+     * meanwhile. Sending stops at the first failure or once the buffer fills up again,
+     * and the hits not sent yet go back to the spill file. After a failure the next attempt waits a few seconds.
+     * Lines that are not a valid hit, such as a line torn by a crash while spilling, are skipped.
+     */
+    private void replaySpill() {
+        spillLock.lock();
+        try {
+            closeSpillWriter();
+            if (!Files.exists(replayFile)) {
+                if (!Files.exists(spillFile)) {
+                    spilled = false;
+                    return;
+                }
+                Files.move(spillFile, replayFile, StandardCopyOption.ATOMIC_MOVE);
+            }
+            spilled = Files.exists(spillFile);
+        } catch (IOException e) {
+            log.error("Failed to move spilled hits from {}", spillFile, e);
+            return;
+        } finally {
+            spillLock.unlock();
+        }
+
+        int sent = 0;
+        int skipped = 0;
+        List<EndpointHitDto> batch = new ArrayList<>(maxSize);
+        try (BufferedReader reader = Files.newBufferedReader(replayFile)) {
+            boolean sending = true;
+            String line = reader.readLine();
+            while (line != null) {
+                String next = reader.readLine();
+                EndpointHitDto hit = parseSpilled(line);
+                if (hit != null) {
+                    batch.add(hit);
+                } else if (!line.isBlank()) {
+                    skipped++;
+                }
+                line = next;
+                if (batch.isEmpty() || batch.size() < maxSize && line != null) {
+                    continue;
+                }
+                if (sending && buffer.size() < maxSize && send(batch)) {
+                    sent += batch.size();
+                } else {
+                    if (sending) {
+                        nextReplay = System.nanoTime() + REPLAY_RETRY_NANOS;
+                    }
+                    sending = false;
+                    spill(batch);
+                }
+                batch.clear();
+            }
+            Files.delete(replayFile);
+        } catch (IOException e) {
+            log.error("Failed to send spilled hits from {}", replayFile, e);
+            spilled = true;
+            nextReplay = System.nanoTime() + REPLAY_RETRY_NANOS;
+            return;
+        }
+        if (skipped > 0) {
+            log.warn("Skipped {} unreadable lines of spilled hits", skipped);
+        }
+        if (sent > 0) {
+            log.info("Sent {} spilled hits", sent);
+        }
+    }
+
+    @Nullable
+    private EndpointHitDto parseSpilled(String line) {
+        if (line.isBlank()) {
+            return null;
+        }
+        try {
+            return hitReader.readValue(line);
+        } catch (JsonProcessingException e) {
+            log.debug("Skipping unreadable spilled hit: {}", e.getOriginalMessage());
+            return null;
+        }
+    }
+
+    private void closeSpillWriter() {
+        if (spillWriter == null) {
+            return;
+        }
+        try {
+            spillWriter.close();
+        } catch (IOException e) {
+            log.error("Failed to close spill file {}", spillFile, e);
+        }
+        spillWriter = null;
+    }
+}
@@ -1,5 +1,15 @@
 package ru.practicum.client;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.apache.hc.client5.http.config.ConnectionConfig;
+import org.apache.hc.client5.http.config.RequestConfig;
+import org.apache.hc.client5.http.impl.classic.CloseableHttpClient;
+import org.apache.hc.client5.http.impl.classic.HttpClients;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManager;
+import org.apache.hc.client5.http.impl.io.PoolingHttpClientConnectionManagerBuilder;
+import org.apache.hc.core5.util.Timeout;
 import org.springframework.boot.web.client.RestTemplateBuilder;
 import org.springframework.http.HttpEntity;
 import org.springframework.http.HttpMethod;
@@ -8,27 +18,68 @@ import org.springframework.http.client.HttpComponentsClientHttpRequestFactory;
 import org.springframework.lang.Nullable;
 import org.springframework.stereotype.Service;
 import org.springframework.web.client.HttpStatusCodeException;
+import org.springframework.web.client.RestClientException;
 import org.springframework.web.client.RestTemplate;
 import org.springframework.web.util.DefaultUriBuilderFactory;
 import org.springframework.web.util.UriComponentsBuilder;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.ViewStatsDto;
 
+import java.util.Arrays;
 import java.util.List;
 import java.util.Map;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
+@Slf4j
 @Service
 public class StatsClient {
+    private static final String STATS_URL_TEMPLATE = UriComponentsBuilder.fromPath("/stats")
+            .queryParam("start", "{start}")
+            .queryParam("end", "{end}")
+            .queryParam("uris", "{uris}")
+            .queryParam("unique", "{unique}")
+            .encode()
+            .toUriString();
+
     private final RestTemplate rest;
+    private final ExecutorService executor = Executors.newVirtualThreadPerTaskExecutor();
+    @Nullable
+    private final HitBatcher hitBatcher;
 
     /**
      * Initializes StatsClient with a base URL for the stats server and a configured RestTemplate.
+     * Requests share a bounded connection pool, which also bounds how many callers can wait on the
+     * stats server at once, whether they run on platform or virtual threads. Every wait is limited by
+     * a timeout, so an unavailable stats server fails requests instead of holding them.
      *
-     * @param builder RestTemplateBuilder for constructing a RestTemplate with custom settings.
+     * @param builder      RestTemplateBuilder for constructing a RestTemplate with custom settings.
+     * @param properties   Stats server URL, connection pool size, timeouts and hit batching.
+     * @param objectMapper Mapper used to spill batched hits to disk.
      */
-    public StatsClient(RestTemplateBuilder builder) {
+    public StatsClient(RestTemplateBuilder builder, StatsClientProperties properties, ObjectMapper objectMapper) {
+        PoolingHttpClientConnectionManager connectionManager = PoolingHttpClientConnectionManagerBuilder.create()
+                .setMaxConnTotal(properties.getMaxConnections())
+                .setMaxConnPerRoute(properties.getMaxConnections())
+                .setDefaultConnectionConfig(ConnectionConfig.custom()
+                        .setConnectTimeout(Timeout.of(properties.getConnectTimeout()))
+                        .build())
+                .build();
+        CloseableHttpClient httpClient = HttpClients.custom()
+                .setConnectionManager(connectionManager)
+                .setDefaultRequestConfig(RequestConfig.custom()
+                        .setResponseTimeout(Timeout.of(properties.getResponseTimeout()))
+                        .setConnectionRequestTimeout(Timeout.of(properties.getConnectionRequestTimeout()))
+                        .build())
+                .build();
         this.rest = builder
-                .uriTemplateHandler(new DefaultUriBuilderFactory("http://stats-server:9090"))
-                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory())
+                .uriTemplateHandler(new DefaultUriBuilderFactory(properties.getUrl()))
+                .requestFactory(() -> new HttpComponentsClientHttpRequestFactory(httpClient))
                 .build();
+        this.hitBatcher = properties.getBatch().isEnabled()
+                ? new HitBatcher(properties.getBatch(), this::sendBatch, objectMapper)
+                : null;
     }
 
     /**
@@ -41,20 +92,41 @@ public class StatsClient {
      * @return ResponseEntity containing statistics data.
      */
     public ResponseEntity<Object> getStats(String start, String end, List<String> uris, boolean unique) {
-        String urlTemplate = UriComponentsBuilder.fromPath("/stats")
-                .queryParam("start", "{start}")
-                .queryParam("end", "{end}")
-                .queryParam("uris", "{uris}")
-                .queryParam("unique", "{unique}")
-                .encode()
-                .toUriString();
-        Map<String, Object> parameters = Map.of(
-                "start", start,
-                "end", end,
-                "uris", uris,
-                "unique", unique
-        );
-        return makeAndSendRequest(HttpMethod.GET, urlTemplate, parameters, null);
+        return makeAndSendRequest(HttpMethod.GET, STATS_URL_TEMPLATE, statsParameters(start, end, uris, unique), null);
+    }
+
+    /**
+     * Retrieves statistics for specified URIs within a given date range as typed DTOs.
+     * The response body is read straight into the DTOs, without an intermediate generic JSON tree.
+     *
+     * @param start  Start date-time of the period (inclusive).
+     * @param end    End date-time of the period (inclusive).
+     * @param uris   List of URIs to filter statistics.
+     * @param unique Whether to count only unique IP addresses.
+     * @return Statistics per app and URI, or an empty list if the server returned no body.
+     * @throws org.springframework.web.client.RestClientException if the request fails or the server
+     *                                                            responds with an error status.
+     */
+    public List<ViewStatsDto> findStats(String start, String end, List<String> uris, boolean unique) {
+        ViewStatsDto[] stats = rest.getForObject(STATS_URL_TEMPLATE, ViewStatsDto[].class,
+                statsParameters(start, end, uris, unique));
+        return stats != null ? Arrays.asList(stats) : List.of();
+    }
+
+    /**
+     * Same as {@link #getStats}, but returns at once and completes the future on a virtual thread.
+     *
+     * @param start  Start date-time of the period (inclusive).
+     * @param end    End date-time of the period (inclusive).
+     * @param uris   List of URIs to filter statistics.
+     * @param unique Whether to count only unique IP addresses.
+     * @return Future completed with the statistics data, or exceptionally if the stats server is unreachable.
+     */
+    public CompletableFuture<ResponseEntity<Object>> getStatsAsync(String start,
+                                                                   String end,
+                                                                   List<String> uris,
+                                                                   boolean unique) {
+        return CompletableFuture.supplyAsync(() -> getStats(start, end, uris, unique), executor);
     }
 
     /**
@@ -68,6 +140,94 @@ public class StatsClient {
         return makeAndSendRequest(HttpMethod.POST, "/hit", null, body);
     }
 
+    /**
+     * Same as {@link #create}, but returns at once and sends the hit on a virtual thread.
+     * Callers that do not need the response may ignore the future: failures are logged.
+     *
+     * @param body The request body containing hit information.
+     * @param <T>  The type of the request body.
+     * @return Future completed with the server's response, or exceptionally if the stats server is unreachable.
+     */
+    public <T> CompletableFuture<ResponseEntity<Object>> createAsync(T body) {
+        return CompletableFuture.supplyAsync(() -> create(body), executor)
+                .whenComplete((response, e) -> {
+                    if (e != null) {
+                        log.warn("Failed to send hit to the stats server: {}", e.getMessage());
+                    } else if (!response.getStatusCode().is2xxSuccessful()) {
+                        log.warn("Stats server rejected hit with status {}", response.getStatusCode());
+                    }
+                });
+    }
+
+    /**
+     * Creates hit records on the stats server in one request.
+     *
+     * @param hits Hits to record.
+     * @return ResponseEntity containing the server's response.
+     */
+    public ResponseEntity<Object> createAll(List<EndpointHitDto> hits) {
+        return makeAndSendRequest(HttpMethod.POST, "/hits", null, hits);
+    }
+
+    /**
+     * Records a hit without waiting for the stats server. With batching enabled the hit joins the next
+     * batch sent to POST /hits, otherwise it is sent on its own as by {@link #createAsync}.
+     *
+     * @param hit Hit to record.
+     */
+    public void send(EndpointHitDto hit) {
+        if (hitBatcher != null) {
+            hitBatcher.add(hit);
+        } else {
+            createAsync(hit);
+        }
+    }
+
+    /**
+     * Sends the buffered hits, then waits for pending asynchronous requests,
+     * each of which is bounded by the client timeouts.
+     */
+    @PreDestroy
+    public void close() {
+        if (hitBatcher != null) {
+            hitBatcher.close();
+        }
+        executor.close();
+    }
+
+    /**
+     * Builds parameters for {@link #STATS_URL_TEMPLATE}. URIs are passed as one comma-separated value,
+     * which the stats server splits into a list.
+     */
+    private static Map<String, Object> statsParameters(String start, String end, List<String> uris, boolean unique) {
+        return Map.of(
+                "start", start,
+                "end", end,
+                "uris", String.join(",", uris),
+                "unique", unique
+        );
+    }
+
+    /**
+     * Sends one batch for {@link HitBatcher}.
+     *
+     * @return false when the batch should be retried later, true when it was stored or rejected as invalid.
+     */
+    private boolean sendBatch(List<EndpointHitDto> hits) {
+        ResponseEntity<Object> response;
+        try {
+            response = createAll(hits);
+        } catch (RestClientException e) {
+            log.warn("Failed to send {} hits to the stats server: {}", hits.size(), e.getMessage());
+            return false;
+        }
+        if (response.getStatusCode().is2xxSuccessful()) {
+            return true;
+        }
+        log.warn("Stats server rejected {} hits with status {}", hits.size(), response.getStatusCode());
+        return response.getStatusCode().is4xxClientError() && response.getStatusCode().value() != 429;
+    }
+
     /**
      * Sends an HTTP request to the stats server.
      *
@@ -0,0 +1,103 @@
+package ru.practicum.client;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats-client")
+public class StatsClientProperties {
+
+    /**
+     * Base URL of the stats server.
+     */
+    String url = "http://stats-server:9090";
+
+    /**
+     * Largest number of open connections to the stats server.
+     */
+    int maxConnections = 20;
+
+    /**
+     * How long to wait for a TCP connection to the stats server.
+     */
+    Duration connectTimeout = Duration.ofSeconds(1);
+
+    /**
+     * How long to wait for the stats server to respond once a request is sent.
+     */
+    Duration responseTimeout = Duration.ofSeconds(3);
+
+    /**
+     * How long a request waits for a free pooled connection when all of them are busy.
+     */
+    Duration connectionRequestTimeout = Duration.ofSeconds(1);
+
+    /**
+     * Batching of hits passed to {@link StatsClient#send}.
+     */
+    Batch batch = new Batch();
+
+    @Data
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Batch {
+
+        /**
+         * Whether hits are collected and sent in batches. When off, each hit is sent in its own request.
+         */
+        boolean enabled = false;
+
+        /**
+         * Largest number of hits sent in one request. A batch is sent as soon as it is full.
+         */
+        int maxSize = 500;
+
+        /**
+         * Longest time a hit waits in the buffer before its batch is sent.
+         */
+        Duration flushInterval = Duration.ofMillis(200);
+
+        /**
+         * Largest number of hits waiting to be sent.
+         */
+        int capacity = 10_000;
+
+        /**
+         * What to do with a hit when the buffer is full.
+         */
+        OverflowPolicy overflow = OverflowPolicy.DROP_OLDEST;
+
+        /**
+         * How long the {@code block} policy waits for room in the buffer before dropping the hit.
+         */
+        Duration blockTimeout = Duration.ofMillis(100);
+
+        /**
+         * File the {@code spill} policy appends hits to, one JSON object per line. It also receives
+         * batches the stats server failed to accept, and is sent once the buffer has drained.
+         */
+        Path spillFile = Path.of(System.getProperty("java.io.tmpdir"), "stats-client-spill.ndjson");
+    }
+
+    public enum OverflowPolicy {
+        /**
+         * Discard the oldest buffered hit to make room.
+         */
+        DROP_OLDEST,
+
+        /**
+         * Make the caller wait for room, at most {@code block-timeout}.
+         */
+        BLOCK,
+
+        /**
+         * Write the hit to the spill file and send it later.
+         */
+        SPILL
+    }
+}
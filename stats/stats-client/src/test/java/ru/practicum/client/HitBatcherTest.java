@@ -0,0 +1,139 @@
+package ru.practicum.client;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.dto.EndpointHitDto;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.awaitility.Awaitility.await;
+
+class HitBatcherTest {
+    private static final Duration TIMEOUT = Duration.ofSeconds(5);
+
+    private final ObjectMapper objectMapper = new ObjectMapper().findAndRegisterModules();
+    private final List<EndpointHitDto> sent = new CopyOnWriteArrayList<>();
+    private final Predicate<List<EndpointHitDto>> accepting = batch -> sent.addAll(batch);
+    private final Predicate<List<EndpointHitDto>> rejecting = batch -> false;
+
+    @TempDir
+    Path directory;
+    private Path spillFile;
+
+    @BeforeEach
+    void setUp() {
+        spillFile = directory.resolve("spill.ndjson");
+    }
+
+    @Test
+    void sendsBufferedHitsOnClose() {
+        StatsClientProperties.Batch properties = properties(StatsClientProperties.OverflowPolicy.DROP_OLDEST);
+        properties.setFlushInterval(Duration.ofHours(1));
+        properties.setMaxSize(2);
+
+        try (HitBatcher batcher = new HitBatcher(properties, accepting, objectMapper)) {
+            for (int i = 0; i < 3; i++) {
+                batcher.add(hit(i));
+            }
+        }
+
+        assertThat(sent).extracting(EndpointHitDto::getUri).containsExactlyInAnyOrder("/events/0", "/events/1",
+                "/events/2");
+    }
+
+    @Test
+    void spillsHitsTheServerRejects() throws IOException {
+        StatsClientProperties.Batch properties = properties(StatsClientProperties.OverflowPolicy.SPILL);
+        properties.setFlushInterval(Duration.ofHours(1));
+
+        try (HitBatcher batcher = new HitBatcher(properties, rejecting, objectMapper)) {
+            batcher.add(hit(1));
+            batcher.add(hit(2));
+        }
+
+        assertThat(readSpill()).extracting(EndpointHitDto::getUri).containsExactly("/events/1", "/events/2");
+    }
+
+    @Test
+    void replaysSpilledHitsOnStart() throws IOException {
+        writeSpill(line(hit(1)), line(hit(2)), line(hit(3)));
+
+        try (HitBatcher batcher = new HitBatcher(properties(StatsClientProperties.OverflowPolicy.SPILL),
+                accepting, objectMapper)) {
+            await().atMost(TIMEOUT).until(() -> sent.size() == 3);
+        }
+
+        assertThat(sent).extracting(EndpointHitDto::getUri).containsExactly("/events/1", "/events/2", "/events/3");
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    @Test
+    void skipsTornLineOfSpillFileAndKeepsSending() throws IOException {
+        String torn = line(hit(3));
+        writeSpill(line(hit(1)), "not json", line(hit(2)), torn.substring(0, torn.length() / 2));
+
+        try (HitBatcher batcher = new HitBatcher(properties(StatsClientProperties.OverflowPolicy.SPILL),
+                accepting, objectMapper)) {
+            await().atMost(TIMEOUT).until(() -> sent.size() == 2);
+            batcher.add(hit(4));
+            await().atMost(TIMEOUT).until(() -> sent.size() == 3);
+        }
+
+        assertThat(sent).extracting(EndpointHitDto::getUri).containsExactly("/events/1", "/events/2", "/events/4");
+        assertThat(directory).isEmptyDirectory();
+    }
+
+    @Test
+    void keepsSpilledHitsWhileServerRejectsThem() throws IOException {
+        writeSpill(line(hit(1)), line(hit(2)));
+
+        try (HitBatcher batcher = new HitBatcher(properties(StatsClientProperties.OverflowPolicy.SPILL),
+                rejecting, objectMapper)) {
+            await().atMost(TIMEOUT).until(() -> Files.exists(spillFile) && readSpill().size() == 2);
+        }
+
+        assertThat(readSpill()).extracting(EndpointHitDto::getUri).containsExactly("/events/1", "/events/2");
+    }
+
+    private StatsClientProperties.Batch properties(StatsClientProperties.OverflowPolicy overflow) {
+        StatsClientProperties.Batch properties = new StatsClientProperties.Batch();
+        properties.setEnabled(true);
+        properties.setMaxSize(10);
+        properties.setFlushInterval(Duration.ofMillis(20));
+        properties.setOverflow(overflow);
+        properties.setSpillFile(spillFile);
+        return properties;
+    }
+
+    private void writeSpill(String... lines) throws IOException {
+        Files.write(spillFile, List.of(lines));
+    }
+
+    private List<EndpointHitDto> readSpill() throws IOException {
+        List<EndpointHitDto> hits = new ArrayList<>();
+        for (String line : Files.readAllLines(spillFile)) {
+            hits.add(objectMapper.readValue(line, EndpointHitDto.class));
+        }
+        return hits;
+    }
+
+    private String line(EndpointHitDto hit) throws IOException {
+        return objectMapper.writeValueAsString(hit);
+    }
+
+    private static EndpointHitDto hit(int event) {
+        return new EndpointHitDto("ewm-main-service", "/events/" + event, "10.0.0." + event,
+                LocalDateTime.of(2026, 10, 18, 12, 0));
+    }
+}
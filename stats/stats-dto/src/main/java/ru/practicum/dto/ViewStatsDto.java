@@ -1,15 +1,19 @@
 package ru.practicum.dto;
 
 import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
+import lombok.NoArgsConstructor;
 import lombok.experimental.FieldDefaults;
 
 @Data
 @Builder
+@AllArgsConstructor
+@NoArgsConstructor
 @FieldDefaults(level = AccessLevel.PRIVATE)
 public class ViewStatsDto {
      String app;
      String uri;
-     Integer hits;
+     Long hits;
 }
\ No newline at end of file
@@ -0,0 +1,67 @@
+package ru.practicum.statsserver.stats.config;
+
+import lombok.AccessLevel;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats.admission")
+public class AdmissionProperties {
+
+    /**
+     * Whether concurrent requests are limited at all.
+     */
+    boolean enabled = true;
+
+    /**
+     * Limit for requests that store hits: POST /hit, POST /hits and POST /admin/hits/import.
+     */
+    Limit ingest = new Limit(10, Duration.ofMillis(50), Duration.ofSeconds(1), HttpStatus.TOO_MANY_REQUESTS);
+
+    /**
+     * Limit for requests that read statistics: GET /stats and everything under it, except the streams.
+     * Live streams are long-lived and bounded by {@code stats.live.max-subscribers} instead.
+     */
+    Limit read = new Limit(6, Duration.ofMillis(500), Duration.ofSeconds(1), HttpStatus.SERVICE_UNAVAILABLE);
+
+    /**
+     * Limit for streaming reads, NDJSON GET /stats and GET /admin/hits/export, which may hold their slot
+     * and a database connection for minutes and so must not take the slots of short reads.
+     */
+    Limit stream = new Limit(2, Duration.ofMillis(100), Duration.ofSeconds(10), HttpStatus.SERVICE_UNAVAILABLE);
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    @FieldDefaults(level = AccessLevel.PRIVATE)
+    public static class Limit {
+
+        /**
+         * Largest number of requests handled at once. With synchronous ingestion all limits together
+         * should stay below the connection pool size, so that neither kind of request can take all connections.
+         */
+        int maxConcurrent;
+
+        /**
+         * How long a request waits for a free slot before it is rejected.
+         */
+        Duration maxWait;
+
+        /**
+         * Delay suggested to rejected clients in the {@code Retry-After} header.
+         */
+        Duration retryAfter;
+
+        /**
+         * Status of rejected requests.
+         */
+        HttpStatus status;
+    }
+}
@@ -0,0 +1,27 @@
+package ru.practicum.statsserver.stats.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats.compaction")
+public class CompactionProperties {
+
+    /**
+     * Age after which whole days of hits are folded into daily counters and sketches and their raw hits
+     * are deleted. Nothing is compacted when not set. Instances sharing a database need the same age,
+     * as queries use it to tell when another instance may have compacted a day.
+     */
+    Duration age;
+
+    /**
+     * Maximum number of rows removed by one delete statement, so that deleting compacted hits
+     * never holds locks or bloats the write-ahead log for long.
+     */
+    int deleteBatchSize = 10_000;
+}
@@ -0,0 +1,26 @@
+package ru.practicum.statsserver.stats.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats.hot-window")
+public class HotWindowProperties {
+
+    /**
+     * Whether recent per-minute counters are kept in memory and used to answer the tail of queries.
+     * The counters only include hits of this instance, so the window must be off when several
+     * instances share a database.
+     */
+    boolean enabled = true;
+
+    /**
+     * How many minutes before the current one are kept in memory.
+     */
+    Duration size = Duration.ofMinutes(10);
+}
@@ -0,0 +1,18 @@
+package ru.practicum.statsserver.stats.config;
+
+public enum IngestMode {
+    /**
+     * Every hit is written to the database inside the request.
+     */
+    SYNC,
+
+    /**
+     * Hits are buffered in memory and written by a background group-commit writer.
+     */
+    ASYNC,
+
+    /**
+     * Hits are appended to a write-ahead log on local disk and loaded into the database in the background.
+     */
+    WAL
+}
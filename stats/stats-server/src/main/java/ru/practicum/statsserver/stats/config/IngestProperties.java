@@ -0,0 +1,52 @@
+package ru.practicum.statsserver.stats.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats.ingest")
+public class IngestProperties {
+
+    /**
+     * How single hits received by POST /hit are persisted.
+     */
+    IngestMode mode = IngestMode.SYNC;
+
+    /**
+     * Number of hits sent to the database in one JDBC batch.
+     * In async mode it is also the number of buffered hits that triggers a flush.
+     */
+    int batchSize = 500;
+
+    /**
+     * Maximum number of hits waiting in the async buffer. Hits arriving at a full buffer are dropped.
+     */
+    int bufferCapacity = 65536;
+
+    /**
+     * Maximum time a hit waits in the async buffer before it is flushed.
+     */
+    Duration flushInterval = Duration.ofMillis(200);
+
+    /**
+     * Interval at which unique-visitor sketches of written hits are merged into the database.
+     */
+    Duration sketchFlushInterval = Duration.ofSeconds(5);
+
+    /**
+     * Maximum number of hourly unique-visitor sketches waiting to be merged, about 4 KB each.
+     * Beyond that, hits merge their sketches into the database while they are written.
+     */
+    int maxPendingSketches = 10_000;
+
+    /**
+     * How far back sketches are rebuilt from raw hits on startup, to recover the pending sketches a crash
+     * lost. Should cover the longest expected restart; zero turns the rebuild off.
+     */
+    Duration sketchRecoveryWindow = Duration.ofHours(1);
+}
@@ -0,0 +1,35 @@
+package ru.practicum.statsserver.stats.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats.live")
+public class LiveStatsProperties {
+
+    /**
+     * Interval at which the hits received meanwhile are sent to subscribers.
+     */
+    Duration interval = Duration.ofSeconds(1);
+
+    /**
+     * How long one GET /stats/stream connection is kept open. Event source clients reconnect by themselves.
+     */
+    Duration timeout = Duration.ofMinutes(10);
+
+    /**
+     * Largest number of open GET /stats/stream connections.
+     */
+    int maxSubscribers = 10_000;
+
+    /**
+     * Largest number of events waiting to be written to one connection. A client that falls further
+     * behind is disconnected and can reconnect.
+     */
+    int maxQueuedEvents = 16;
+}
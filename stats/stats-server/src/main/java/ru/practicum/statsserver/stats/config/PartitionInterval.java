@@ -0,0 +1,36 @@
+package ru.practicum.statsserver.stats.config;
+
+import java.time.LocalDate;
+import java.time.format.DateTimeFormatter;
+import java.time.temporal.ChronoUnit;
+
+public enum PartitionInterval {
+    DAY(ChronoUnit.DAYS, DateTimeFormatter.ofPattern("yyyyMMdd")),
+    MONTH(ChronoUnit.MONTHS, DateTimeFormatter.ofPattern("yyyyMM"));
+
+    private final ChronoUnit unit;
+    private final DateTimeFormatter suffixFormatter;
+
+    PartitionInterval(ChronoUnit unit, DateTimeFormatter suffixFormatter) {
+        this.unit = unit;
+        this.suffixFormatter = suffixFormatter;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    public DateTimeFormatter getSuffixFormatter() {
+        return suffixFormatter;
+    }
+
+    /**
+     * Returns the first day of the partition that contains the given date.
+     *
+     * @param date any date.
+     * @return start of the partition.
+     */
+    public LocalDate startOf(LocalDate date) {
+        return this == MONTH ? date.withDayOfMonth(1) : date;
+    }
+}
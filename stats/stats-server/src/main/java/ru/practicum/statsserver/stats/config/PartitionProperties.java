@@ -0,0 +1,41 @@
+package ru.practicum.statsserver.stats.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats.partition")
+public class PartitionProperties {
+
+    /**
+     * Time range covered by one partition of the raw stats table.
+     */
+    PartitionInterval interval = PartitionInterval.DAY;
+
+    /**
+     * Number of future partitions kept created ahead of the current one.
+     */
+    int createAhead = 7;
+
+    /**
+     * Age after which hits are removed: whole partitions, expired hits left in the default partition,
+     * and the counters and sketches of the same periods. Everything is kept forever when not set.
+     */
+    Duration retention;
+
+    /**
+     * Whether expired partitions are dropped or only detached, leaving them as standalone tables for archiving.
+     */
+    boolean detachOnly = false;
+
+    /**
+     * Maximum number of rows removed by one delete statement when applying the retention
+     * to the default partition, counters and sketches.
+     */
+    int deleteBatchSize = 10_000;
+}
@@ -0,0 +1,22 @@
+package ru.practicum.statsserver.stats.config;
+
+import org.springframework.boot.web.embedded.netty.NettyReactiveWebServerFactory;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.context.annotation.Profile;
+
+@Configuration
+@Profile("reactive")
+public class ReactiveConfig {
+
+    /**
+     * Runs the reactive stack on Netty. Tomcat stays on the classpath for the servlet stack
+     * and would otherwise be picked for reactive handlers as well.
+     *
+     * @return Netty server factory configured from {@code server.*} properties.
+     */
+    @Bean
+    public NettyReactiveWebServerFactory nettyReactiveWebServerFactory() {
+        return new NettyReactiveWebServerFactory();
+    }
+}
@@ -0,0 +1,35 @@
+package ru.practicum.statsserver.stats.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats.cache")
+public class StatsCacheProperties {
+
+    /**
+     * Whether results of GET /stats are cached.
+     */
+    boolean enabled = true;
+
+    /**
+     * Maximum number of cached results. The least recently used ones are evicted first.
+     */
+    int maxSize = 10000;
+
+    /**
+     * How long a result covering the current minute is kept.
+     */
+    Duration openTtl = Duration.ofSeconds(5);
+
+    /**
+     * How long a result for closed minutes is kept. Bounds how long hits committed by other instances
+     * sharing the database, which do not invalidate this cache, stay invisible.
+     */
+    Duration closedTtl = Duration.ofMinutes(5);
+}
@@ -0,0 +1,17 @@
+package ru.practicum.statsserver.stats.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats.timeseries")
+public class TimeSeriesProperties {
+
+    /**
+     * Largest number of buckets returned by GET /stats/timeseries.
+     */
+    int maxPoints = 10_000;
+}
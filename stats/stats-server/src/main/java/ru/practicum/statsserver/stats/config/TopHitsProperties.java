@@ -0,0 +1,34 @@
+package ru.practicum.statsserver.stats.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats.top")
+public class TopHitsProperties {
+
+    /**
+     * Number of counters kept per hour by the in-memory heavy hitters summary.
+     */
+    int capacity = 1000;
+
+    /**
+     * How far back the in-memory summary is kept. Older ranges are answered from the database.
+     */
+    Duration window = Duration.ofHours(24);
+
+    /**
+     * Largest number of candidate URIs recounted exactly before falling back to a database query.
+     */
+    int maxCandidates = 1000;
+
+    /**
+     * Largest K accepted by GET /stats/top.
+     */
+    int maxK = 1000;
+}
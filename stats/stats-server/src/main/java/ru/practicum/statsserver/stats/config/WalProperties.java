@@ -0,0 +1,38 @@
+package ru.practicum.statsserver.stats.config;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.experimental.FieldDefaults;
+import org.springframework.boot.context.properties.ConfigurationProperties;
+import org.springframework.util.unit.DataSize;
+
+import java.nio.file.Path;
+import java.time.Duration;
+
+@Data
+@FieldDefaults(level = AccessLevel.PRIVATE)
+@ConfigurationProperties(prefix = "stats.wal")
+public class WalProperties {
+
+    /**
+     * Directory holding the write-ahead log segments in wal ingest mode.
+     */
+    Path directory = Path.of("wal");
+
+    /**
+     * Size of one log segment file.
+     */
+    DataSize segmentSize = DataSize.ofMegabytes(64);
+
+    /**
+     * Pause between passes of the loader moving logged hits to the database.
+     */
+    Duration loadInterval = Duration.ofSeconds(1);
+
+    /**
+     * Id the loader records its checkpoint under. Every node running in wal mode needs its own id.
+     * When not set, the host name and the absolute log directory are used, which is enough as long as
+     * host names are stable across restarts. Setting it requires {@code stats.hot-window.enabled=false}.
+     */
+    String nodeId;
+}
@@ -0,0 +1,60 @@
+package ru.practicum.statsserver.stats.config;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.MediaType;
+import org.springframework.http.converter.HttpMessageConverter;
+import org.springframework.http.converter.json.MappingJackson2HttpMessageConverter;
+import org.springframework.web.servlet.config.annotation.InterceptorRegistry;
+import org.springframework.web.servlet.config.annotation.WebMvcConfigurer;
+import ru.practicum.statsserver.stats.controller.AdmissionInterceptor;
+
+import java.util.ArrayList;
+import java.util.List;
+
+@Configuration
+@RequiredArgsConstructor
+public class WebConfig implements WebMvcConfigurer {
+    private final AdmissionProperties admissionProperties;
+    private final MeterRegistry meterRegistry;
+
+    /**
+     * Lets the JSON converter write {@code application/x-ndjson}, so that errors raised by
+     * NDJSON endpoints are rendered as a single JSON line instead of failing content negotiation.
+     *
+     * @param converters converters configured by Spring Boot.
+     */
+    @Override
+    public void extendMessageConverters(List<HttpMessageConverter<?>> converters) {
+        for (HttpMessageConverter<?> converter : converters) {
+            if (converter instanceof MappingJackson2HttpMessageConverter jsonConverter) {
+                List<MediaType> mediaTypes = new ArrayList<>(jsonConverter.getSupportedMediaTypes());
+                mediaTypes.add(MediaType.APPLICATION_NDJSON);
+                jsonConverter.setSupportedMediaTypes(mediaTypes);
+            }
+        }
+    }
+
+    /**
+     * Gives writes, reads and streaming reads separate concurrency limits, see {@link AdmissionInterceptor}.
+     *
+     * @param registry interceptor registry.
+     */
+    @Override
+    public void addInterceptors(InterceptorRegistry registry) {
+        if (!admissionProperties.isEnabled()) {
+            return;
+        }
+        registry.addInterceptor(new AdmissionInterceptor("ingest", admissionProperties.getIngest(), false,
+                        meterRegistry))
+                .addPathPatterns("/hit", "/hits", "/admin/hits/import");
+        registry.addInterceptor(new AdmissionInterceptor("read", admissionProperties.getRead(), false,
+                        meterRegistry))
+                .addPathPatterns("/stats", "/stats/**")
+                .excludePathPatterns("/stats/stream");
+        registry.addInterceptor(new AdmissionInterceptor("stream", admissionProperties.getStream(), true,
+                        meterRegistry))
+                .addPathPatterns("/stats", "/admin/hits/export");
+    }
+}
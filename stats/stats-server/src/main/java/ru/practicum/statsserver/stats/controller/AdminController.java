@@ -0,0 +1,70 @@
+package ru.practicum.statsserver.stats.controller;
+
+import jakarta.servlet.http.HttpServletRequest;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+import ru.practicum.statsserver.stats.service.HitTransferService;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.time.LocalDateTime;
+
+@RestController
+@Profile("!reactive")
+@RequiredArgsConstructor
+public class AdminController {
+    private static final String TEXT_CSV_VALUE = "text/csv";
+
+    private final HitTransferService hitTransferService;
+
+    /**
+     * Imports hits in bulk from CSV with a header line and the columns app, uri, ip and timestamp.
+     *
+     * @param request HTTP request whose body contains the CSV.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping(value = "/admin/hits/import", consumes = TEXT_CSV_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void importHits(HttpServletRequest request) throws IOException {
+        try (InputStream csv = request.getInputStream()) {
+            hitTransferService.importHits(csv);
+        }
+    }
+
+    /**
+     * Exports hits within a given time range as CSV in the format accepted by the import.
+     *
+     * @param start Start date and time of the period (inclusive).
+     * @param end   End date and time of the period (inclusive).
+     * @return Response body writing the CSV.
+     */
+    @GetMapping("/admin/hits/export")
+    public ResponseEntity<StreamingResponseBody> exportHits(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                            LocalDateTime start,
+                                                            @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                            LocalDateTime end) {
+        if (start.isAfter(end)) {
+            throw new BadRequestException("Start date must be before end date");
+        }
+        return ResponseEntity.ok()
+                .contentType(MediaType.parseMediaType(TEXT_CSV_VALUE))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment()
+                        .filename("hits.csv")
+                        .build()
+                        .toString())
+                .body(outputStream -> hitTransferService.exportHits(start, end, outputStream));
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum.statsserver.stats.controller;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.core.ResolvableType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.method.HandlerMethod;
+import org.springframework.web.servlet.AsyncHandlerInterceptor;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
+import ru.practicum.statsserver.stats.config.AdmissionProperties;
+import ru.practicum.statsserver.stats.exception.exception.OverloadedException;
+
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits how many requests of one group are handled at once. A request waits up to
+ * {@code maxWait} for a free slot and is rejected with a {@code Retry-After} header afterwards,
+ * so a burst of one kind of request is shed early instead of queueing on server threads and
+ * database connections that the other kind needs. Streaming responses hold their slot until
+ * the response is complete, so they get a group of their own: an interceptor either handles only
+ * handlers that return a {@link StreamingResponseBody} or only the other ones.
+ */
+@Slf4j
+public class AdmissionInterceptor implements AsyncHandlerInterceptor {
+    private static final String PERMIT_ATTRIBUTE = AdmissionInterceptor.class.getName() + ".permit";
+
+    private final String group;
+    private final AdmissionProperties.Limit limit;
+    private final boolean streaming;
+    private final Semaphore permits;
+    private final Timer waitTime;
+    private final Counter rejected;
+
+    /**
+     * @param group     group name used in metrics and messages.
+     * @param limit     limit shared by the requests of the group.
+     * @param streaming whether the group consists of the streaming handlers of its paths or of the other ones.
+     */
+    public AdmissionInterceptor(String group, AdmissionProperties.Limit limit, boolean streaming,
+                                MeterRegistry meterRegistry) {
+        this.group = group;
+        this.limit = limit;
+        this.streaming = streaming;
+        this.permits = new Semaphore(limit.getMaxConcurrent(), true);
+        this.waitTime = Timer.builder("stats.admission.wait")
+                .description("Time requests waited for a free slot")
+                .tag("group", group)
+                .register(meterRegistry);
+        this.rejected = Counter.builder("stats.admission.rejected")
+                .description("Requests rejected because all slots were busy")
+                .tag("group", group)
+                .register(meterRegistry);
+        Gauge.builder("stats.admission.active", permits, p -> limit.getMaxConcurrent() - p.availablePermits())
+                .description("Requests being handled")
+                .tag("group", group)
+                .register(meterRegistry);
+    }
+
+    @Override
+    public boolean preHandle(HttpServletRequest request, HttpServletResponse response, Object handler) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) != null) {
+            // Dispatched again to complete an async response, the slot is already held.
+            return true;
+        }
+        if (isStreaming(handler) != streaming) {
+            return true;
+        }
+        long startedAt = System.nanoTime();
+        boolean acquired;
+        try {
+            acquired = permits.tryAcquire(limit.getMaxWait().toNanos(), TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            acquired = false;
+        }
+        waitTime.record(System.nanoTime() - startedAt, TimeUnit.NANOSECONDS);
+        if (!acquired) {
+            rejected.increment();
+            log.warn("Rejected {} {}: all {} {} slots are busy", request.getMethod(), request.getRequestURI(),
+                    limit.getMaxConcurrent(), group);
+            throw new OverloadedException("Too many concurrent " + group + " requests, retry later",
+                    limit.getStatus(), limit.getRetryAfter());
+        }
+        request.setAttribute(PERMIT_ATTRIBUTE, this);
+        return true;
+    }
+
+    @Override
+    public void afterCompletion(HttpServletRequest request, HttpServletResponse response, Object handler,
+                                Exception ex) {
+        if (request.getAttribute(PERMIT_ATTRIBUTE) == this) {
+            request.removeAttribute(PERMIT_ATTRIBUTE);
+            permits.release();
+        }
+    }
+
+    private static boolean isStreaming(Object handler) {
+        if (!(handler instanceof HandlerMethod handlerMethod)) {
+            return false;
+        }
+        ResolvableType returnType = ResolvableType.forMethodReturnType(handlerMethod.getMethod());
+        if (ResponseEntity.class.isAssignableFrom(returnType.toClass())) {
+            returnType = returnType.getGeneric(0);
+        }
+        return StreamingResponseBody.class.isAssignableFrom(returnType.toClass());
+    }
+}
@@ -0,0 +1,110 @@
+package ru.practicum.statsserver.stats.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.format.annotation.DateTimeFormat;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.web.bind.annotation.GetMapping;
+import org.springframework.web.bind.annotation.PostMapping;
+import org.springframework.web.bind.annotation.RequestBody;
+import org.springframework.web.bind.annotation.RequestParam;
+import org.springframework.web.bind.annotation.ResponseStatus;
+import org.springframework.web.bind.annotation.RestController;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.TimeSeriesPointDto;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.service.StatsService;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.Callable;
+
+/**
+ * Serves the same endpoints and DTOs as {@link StatsController} on the reactive stack, enabled by the
+ * {@code reactive} profile. Request bodies are read and responses written by a few event loop threads.
+ * Buffered hits are accepted right on the event loop. Everything that waits for the database runs on the
+ * bounded elastic scheduler, so the event loop is never blocked. NDJSON streaming, live streams and
+ * the admin endpoints are only available on the servlet stack.
+ */
+@RestController
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveStatsController {
+    private final StatsService statsService;
+
+    /**
+     * Creates a new record for an endpoint hit.
+     *
+     * @param endpointHitDto DTO containing information about the hit.
+     * @return completes once the hit is accepted.
+     */
+    @PostMapping("/hit")
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Void> create(@RequestBody EndpointHitDto endpointHitDto) {
+        if (!statsService.isCreateBlocking()) {
+            return Mono.fromRunnable(() -> statsService.create(endpointHitDto));
+        }
+        return Mono.<Void>fromRunnable(() -> statsService.create(endpointHitDto))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Creates records for a batch of endpoint hits passed as a JSON array.
+     *
+     * @param endpointHitDtos DTOs containing information about the hits.
+     * @return completes once the hits are saved.
+     */
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public Mono<Void> createAll(@RequestBody List<EndpointHitDto> endpointHitDtos) {
+        return Mono.<Void>fromRunnable(() -> statsService.createAll(endpointHitDtos.iterator()))
+                .subscribeOn(Schedulers.boundedElastic());
+    }
+
+    /**
+     * Retrieves view statistics, see {@link StatsController#getStats}.
+     */
+    @GetMapping("/stats")
+    public Mono<List<ViewStatsDto>> getStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                             LocalDateTime start,
+                                             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                             LocalDateTime end,
+                                             @RequestParam(required = false) List<String> uris,
+                                             @RequestParam(defaultValue = "false") boolean unique,
+                                             @RequestParam(defaultValue = "false") boolean approximate) {
+        return blocking(() -> statsService.getStats(start, end, uris, unique, approximate));
+    }
+
+    /**
+     * Retrieves the most viewed URIs, see {@link StatsController#getTopStats}.
+     */
+    @GetMapping("/stats/top")
+    public Mono<List<ViewStatsDto>> getTopStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                LocalDateTime start,
+                                                @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                LocalDateTime end,
+                                                @RequestParam(defaultValue = "10") int k) {
+        return blocking(() -> statsService.getTopStats(start, end, k));
+    }
+
+    /**
+     * Retrieves hits of one URI per time bucket, see {@link StatsController#getTimeSeries}.
+     */
+    @GetMapping("/stats/timeseries")
+    public Mono<List<TimeSeriesPointDto>> getTimeSeries(@RequestParam String uri,
+                                                        @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                        LocalDateTime start,
+                                                        @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                        LocalDateTime end,
+                                                        @RequestParam(defaultValue = "1h") String interval,
+                                                        @RequestParam(defaultValue = "false") boolean unique) {
+        return blocking(() -> statsService.getTimeSeries(uri, start, end, interval, unique));
+    }
+
+    private static <T> Mono<T> blocking(Callable<T> call) {
+        return Mono.fromCallable(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
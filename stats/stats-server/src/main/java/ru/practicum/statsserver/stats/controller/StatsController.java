@@ -1,8 +1,14 @@
 package ru.practicum.statsserver.stats.controller;
 
-import lombok.RequiredArgsConstructor;
+import com.fasterxml.jackson.databind.MappingIterator;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectReader;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import jakarta.servlet.http.HttpServletRequest;
+import org.springframework.context.annotation.Profile;
 import org.springframework.format.annotation.DateTimeFormat;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.GetMapping;
 import org.springframework.web.bind.annotation.PostMapping;
@@ -10,18 +16,40 @@ import org.springframework.web.bind.annotation.RequestBody;
 import org.springframework.web.bind.annotation.RequestParam;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestController;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.TimeSeriesPointDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+import ru.practicum.statsserver.stats.service.LiveStatsBroadcaster;
 import ru.practicum.statsserver.stats.service.StatsService;
 
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.time.LocalDateTime;
 import java.util.List;
 
 @RestController
-@RequiredArgsConstructor
+@Profile("!reactive")
 @Validated
 public class StatsController {
+    private static final byte[] NEW_LINE = {'\n'};
+
     private final StatsService statsService;
+    private final LiveStatsBroadcaster liveStatsBroadcaster;
+    private final ObjectReader hitReader;
+    private final ObjectWriter statsWriter;
+
+    public StatsController(StatsService statsService,
+                           LiveStatsBroadcaster liveStatsBroadcaster,
+                           ObjectMapper objectMapper) {
+        this.statsService = statsService;
+        this.liveStatsBroadcaster = liveStatsBroadcaster;
+        this.hitReader = objectMapper.readerFor(EndpointHitDto.class);
+        this.statsWriter = objectMapper.writerFor(ViewStatsDto.class);
+    }
 
     /**
      * Creates a new record for an endpoint hit.
@@ -34,13 +62,40 @@ public class StatsController {
         statsService.create(endpointHitDto);
     }
 
+    /**
+     * Creates records for a batch of endpoint hits passed as a JSON array.
+     *
+     * @param endpointHitDtos DTOs containing information about the hits.
+     */
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_JSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void createAll(@RequestBody List<EndpointHitDto> endpointHitDtos) {
+        statsService.createAll(endpointHitDtos.iterator());
+    }
+
+    /**
+     * Creates records for a stream of endpoint hits passed as newline-delimited JSON.
+     * The body is parsed lazily while the hits are being written.
+     *
+     * @param request HTTP request whose body contains one hit per line.
+     * @throws IOException if the request body cannot be read.
+     */
+    @PostMapping(value = "/hits", consumes = MediaType.APPLICATION_NDJSON_VALUE)
+    @ResponseStatus(HttpStatus.CREATED)
+    public void createAll(HttpServletRequest request) throws IOException {
+        try (MappingIterator<EndpointHitDto> endpointHitDtos = hitReader.readValues(request.getInputStream())) {
+            statsService.createAll(endpointHitDtos);
+        }
+    }
+
     /**
      * Retrieves view statistics for specified URIs within a given time range.
      *
-     * @param start  Start date and time of the period (inclusive).
-     * @param end    End date and time of the period (inclusive).
-     * @param uris   List of URIs to filter statistics (optional).
-     * @param unique Flag indicating whether to count only unique IP addresses.
+     * @param start       Start date and time of the period (inclusive).
+     * @param end         End date and time of the period (inclusive).
+     * @param uris        List of URIs to filter statistics (optional).
+     * @param unique      Flag indicating whether to count only unique IP addresses.
+     * @param approximate Flag allowing unique IP addresses to be estimated with a bounded error of about 2%.
      * @return List of view statistics.
      */
     @GetMapping("/stats")
@@ -49,7 +104,95 @@ public class StatsController {
                                        @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
                                        LocalDateTime end,
                                        @RequestParam(required = false) List<String> uris,
-                                       @RequestParam(defaultValue = "false") boolean unique) {
-        return statsService.getStats(start, end, uris, unique);
+                                       @RequestParam(defaultValue = "false") boolean unique,
+                                       @RequestParam(defaultValue = "false") boolean approximate) {
+        return statsService.getStats(start, end, uris, unique, approximate);
+    }
+
+    /**
+     * Streams view statistics as newline-delimited JSON, one {@link ViewStatsDto} per line.
+     * Rows are written as they are read from the database, so large results never have to be
+     * buffered by the server.
+     *
+     * @param start       Start date and time of the period (inclusive).
+     * @param end         End date and time of the period (inclusive).
+     * @param uris        List of URIs to filter statistics (optional).
+     * @param unique      Flag indicating whether to count only unique IP addresses.
+     * @param approximate Flag allowing unique IP addresses to be estimated with a bounded error of about 2%.
+     * @return Response body writing the statistics.
+     */
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public StreamingResponseBody streamStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                             LocalDateTime start,
+                                             @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                             LocalDateTime end,
+                                             @RequestParam(required = false) List<String> uris,
+                                             @RequestParam(defaultValue = "false") boolean unique,
+                                             @RequestParam(defaultValue = "false") boolean approximate) {
+        if (start.isAfter(end)) {
+            throw new BadRequestException("Start date must be before end date");
+        }
+        return outputStream -> statsService.streamStats(start, end, uris, unique, approximate,
+                stats -> writeLine(outputStream, stats));
+    }
+
+    /**
+     * Retrieves the most viewed URIs within a given time range.
+     *
+     * @param start Start date and time of the period (inclusive).
+     * @param end   End date and time of the period (inclusive).
+     * @param k     Number of URIs to return.
+     * @return List of view statistics in descending order of hits.
+     */
+    @GetMapping("/stats/top")
+    public List<ViewStatsDto> getTopStats(@RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                          LocalDateTime start,
+                                          @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                          LocalDateTime end,
+                                          @RequestParam(defaultValue = "10") int k) {
+        return statsService.getTopStats(start, end, k);
+    }
+
+    /**
+     * Retrieves hits of one URI per time bucket, for charting traffic over a period.
+     *
+     * @param uri      URI to chart.
+     * @param start    Start date and time of the period (inclusive).
+     * @param end      End date and time of the period (inclusive).
+     * @param interval Bucket size: 1m, 1h or 1d.
+     * @param unique   Flag indicating whether to count only unique IP addresses.
+     * @return One point per bucket in chronological order, including empty buckets.
+     */
+    @GetMapping("/stats/timeseries")
+    public List<TimeSeriesPointDto> getTimeSeries(@RequestParam String uri,
+                                                  @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                  LocalDateTime start,
+                                                  @RequestParam @DateTimeFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+                                                  LocalDateTime end,
+                                                  @RequestParam(defaultValue = "1h") String interval,
+                                                  @RequestParam(defaultValue = "false") boolean unique) {
+        return statsService.getTimeSeries(uri, start, end, interval, unique);
+    }
+
+    /**
+     * Streams new hits of the given URIs as server-sent events, at most one event per URI per second.
+     * Each {@code hits} event carries the hits received since the previous event as a list of
+     * {@link ViewStatsDto}, one per app, to be added to totals fetched once with {@link #getStats}.
+     *
+     * @param uris URIs to follow.
+     * @return Event stream, closed after {@code stats.live.timeout}.
+     */
+    @GetMapping(value = "/stats/stream", produces = MediaType.TEXT_EVENT_STREAM_VALUE)
+    public SseEmitter streamLiveStats(@RequestParam List<String> uris) {
+        return liveStatsBroadcaster.subscribe(uris);
+    }
+
+    private void writeLine(OutputStream outputStream, ViewStatsDto stats) {
+        try {
+            outputStream.write(statsWriter.writeValueAsBytes(stats));
+            outputStream.write(NEW_LINE);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
     }
 }
@@ -0,0 +1,24 @@
+package ru.practicum.statsserver.stats.exception.exception;
+
+import org.springframework.http.HttpStatus;
+
+import java.time.Duration;
+
+public class OverloadedException extends RuntimeException {
+    private final HttpStatus status;
+    private final Duration retryAfter;
+
+    public OverloadedException(String message, HttpStatus status, Duration retryAfter) {
+        super(message);
+        this.status = status;
+        this.retryAfter = retryAfter;
+    }
+
+    public HttpStatus getStatus() {
+        return status;
+    }
+
+    public Duration getRetryAfter() {
+        return retryAfter;
+    }
+}
@@ -1,11 +1,15 @@
 package ru.practicum.statsserver.stats.exception.handler;
 
+import com.fasterxml.jackson.databind.RuntimeJsonMappingException;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.ExceptionHandler;
 import org.springframework.web.bind.annotation.ResponseStatus;
 import org.springframework.web.bind.annotation.RestControllerAdvice;
 import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+import ru.practicum.statsserver.stats.exception.exception.OverloadedException;
 import ru.practicum.statsserver.stats.exception.model.ApiError;
 
 @RestControllerAdvice
@@ -18,4 +22,22 @@ public class ErrorHandler {
                 "Incorrectly made request.",
                 e.getMessage());
     }
+
+    @ExceptionHandler
+    @ResponseStatus(HttpStatus.BAD_REQUEST)
+    public ApiError handleRuntimeJsonMappingException(final RuntimeJsonMappingException e) {
+        return new ApiError(HttpStatus.BAD_REQUEST,
+                "Incorrectly made request.",
+                e.getMessage());
+    }
+
+    @ExceptionHandler
+    public ResponseEntity<ApiError> handleOverloadedException(final OverloadedException e) {
+        long retryAfterSeconds = Math.max(1, (e.getRetryAfter().toMillis() + 999) / 1000);
+        return ResponseEntity.status(e.getStatus())
+                .header(HttpHeaders.RETRY_AFTER, String.valueOf(retryAfterSeconds))
+                .body(new ApiError(e.getStatus(),
+                        "The server is overloaded.",
+                        e.getMessage()));
+    }
 }
\ No newline at end of file
@@ -1,40 +1,108 @@
 package ru.practicum.statsserver.stats.mapper;
 
+import lombok.RequiredArgsConstructor;
 import org.springframework.stereotype.Component;
 import ru.practicum.dto.EndpointHitDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+import ru.practicum.statsserver.stats.model.DictionaryTable;
 import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.HitCount;
+import ru.practicum.statsserver.stats.service.StatsDictionary;
+import ru.practicum.statsserver.stats.util.IpAddressUtil;
 
 import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
 import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Component
+@RequiredArgsConstructor
 public class EndpointHitMapper {
+    /**
+     * Length of the name columns of the app and URI dictionaries.
+     */
+    private static final int MAX_NAME_LENGTH = 255;
 
+    private final StatsDictionary statsDictionary;
+
+    /**
+     * Converts a hit received from a client, checking everything the database would reject, so a hit
+     * that was accepted can always be stored later, for example by the write-ahead log loader.
+     *
+     * @param dto hit received from a client.
+     * @return hit with a normalized IP address.
+     * @throws BadRequestException if a field is missing or cannot be stored.
+     */
     public EndpointHit toEndpointHit(EndpointHitDto dto) {
+        validateName("App", dto.getApp());
+        validateName("Uri", dto.getUri());
+        if (dto.getTimestamp() == null) {
+            throw new BadRequestException("Timestamp is required");
+        }
+        String ip;
+        try {
+            ip = IpAddressUtil.normalize(dto.getIp());
+        } catch (IllegalArgumentException e) {
+            throw new BadRequestException(e.getMessage());
+        }
         return EndpointHit.builder()
                 .app(dto.getApp())
                 .uri(dto.getUri())
-                .ip(dto.getIp())
+                .ip(ip)
                 .timestamp(dto.getTimestamp())
                 .build();
     }
 
-    public List<ViewStatsDto> toViewStatsDtoList(Collection<EndpointHit> hits) {
-        Map<String, Map<String, Long>> groupedStats = hits.stream()
-                .collect(Collectors.groupingBy(EndpointHit::getApp,
-                        Collectors.groupingBy(EndpointHit::getUri, Collectors.counting())));
-
-        return groupedStats.entrySet().stream()
-                .flatMap(appEntry -> appEntry.getValue().entrySet().stream()
-                        .map(uriEntry -> ViewStatsDto.builder()
-                                .app(appEntry.getKey())
-                                .uri(uriEntry.getKey())
-                                .hits(uriEntry.getValue().intValue())
-                                .build()))
-                .sorted((dto1, dto2) -> Integer.compare(dto2.getHits(), dto1.getHits()))
+    /**
+     * Sums partial counts of the same app and URI and sorts the result by hits in descending order.
+     *
+     * @param partialCounts counts collected from several sources.
+     * @return merged counts.
+     */
+    public List<HitCount> mergeHitCounts(Collection<HitCount> partialCounts) {
+        Map<Long, HitCount> merged = new HashMap<>();
+        for (HitCount count : partialCounts) {
+            merged.merge(count.getKey(), count, (a, b) -> new HitCount(a.getAppId(), a.getUriId(), a.getHits() + b.getHits()));
+        }
+        return merged.values().stream()
+                .sorted(Comparator.comparing(HitCount::getHits).reversed())
                 .toList();
     }
+
+    /**
+     * Converts counts keyed by dictionary ids to statistics with app and URI names, keeping the order.
+     *
+     * @param counts counts to convert.
+     * @return statistics for each count.
+     */
+    public List<ViewStatsDto> toViewStatsDtoList(List<HitCount> counts) {
+        Set<Integer> appIds = counts.stream().map(HitCount::getAppId).collect(Collectors.toSet());
+        Set<Integer> uriIds = counts.stream().map(HitCount::getUriId).collect(Collectors.toSet());
+        Map<Integer, String> apps = statsDictionary.findNames(DictionaryTable.APP, appIds);
+        Map<Integer, String> uris = statsDictionary.findNames(DictionaryTable.URI, uriIds);
+
+        return counts.stream()
+                .map(count -> ViewStatsDto.builder()
+                        .app(apps.get(count.getAppId()))
+                        .uri(uris.get(count.getUriId()))
+                        .hits(count.getHits())
+                        .build())
+                .toList();
+    }
+
+    private static void validateName(String field, String value) {
+        if (value == null) {
+            throw new BadRequestException(field + " is required");
+        }
+        if (value.codePointCount(0, value.length()) > MAX_NAME_LENGTH) {
+            throw new BadRequestException(field + " must not be longer than " + MAX_NAME_LENGTH + " characters");
+        }
+        if (value.indexOf('\0') >= 0) {
+            throw new BadRequestException(field + " must not contain NUL characters");
+        }
+    }
 }
@@ -0,0 +1,19 @@
+package ru.practicum.statsserver.stats.model;
+
+/**
+ * Dictionaries that map repeated strings of hits to compact integer keys.
+ */
+public enum DictionaryTable {
+    APP("stats_app"),
+    URI("stats_uri");
+
+    private final String table;
+
+    DictionaryTable(String table) {
+        this.table = table;
+    }
+
+    public String getTable() {
+        return table;
+    }
+}
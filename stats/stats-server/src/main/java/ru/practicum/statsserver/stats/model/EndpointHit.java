@@ -1,16 +1,19 @@
 package ru.practicum.statsserver.stats.model;
 
+import jakarta.persistence.Column;
 import jakarta.persistence.Entity;
 import jakarta.persistence.GeneratedValue;
 import jakarta.persistence.GenerationType;
 import jakarta.persistence.Id;
 import jakarta.persistence.Table;
+import jakarta.persistence.Transient;
 import lombok.AccessLevel;
 import lombok.AllArgsConstructor;
 import lombok.Builder;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import lombok.experimental.FieldDefaults;
+import org.hibernate.annotations.ColumnTransformer;
 
 import java.time.LocalDateTime;
 
@@ -32,17 +35,35 @@ public class EndpointHit {
 
     /**
      * Название приложения, отправившего запрос.
+     * Хранится в словаре, в записи хранится только appId.
      */
+    @Transient
     String app;
 
     /**
      * URI, к которому был сделан запрос.
+     * Хранится в словаре, в записи хранится только uriId.
      */
+    @Transient
     String uri;
 
     /**
-     * IP-адрес пользователя, сделавшего запрос.
+     * Идентификатор приложения в словаре приложений.
      */
+    @Column(name = "app_id")
+    Integer appId;
+
+    /**
+     * Идентификатор URI в словаре URI.
+     */
+    @Column(name = "uri_id")
+    Integer uriId;
+
+    /**
+     * IP-адрес пользователя, сделавшего запрос. Хранится в колонке типа inet.
+     */
+    @Column(columnDefinition = "inet")
+    @ColumnTransformer(write = "CAST(? AS inet)")
     String ip;
 
     /**
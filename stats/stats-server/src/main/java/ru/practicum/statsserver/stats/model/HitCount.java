@@ -0,0 +1,41 @@
+package ru.practicum.statsserver.stats.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Hit count of one app and URI, identified by their dictionary ids.
+ */
+@Data
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+public class HitCount {
+    Integer appId;
+    Integer uriId;
+    Long hits;
+
+    /**
+     * Packs an app and URI id pair into a single key.
+     *
+     * @param appId app dictionary id.
+     * @param uriId URI dictionary id.
+     * @return key unique for the pair.
+     */
+    public static long key(int appId, int uriId) {
+        return ((long) appId << Integer.SIZE) | (uriId & 0xffffffffL);
+    }
+
+    public static int appId(long key) {
+        return (int) (key >>> Integer.SIZE);
+    }
+
+    public static int uriId(long key) {
+        return (int) key;
+    }
+
+    public long getKey() {
+        return key(appId, uriId);
+    }
+}
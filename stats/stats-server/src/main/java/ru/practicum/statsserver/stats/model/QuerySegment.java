@@ -0,0 +1,20 @@
+package ru.practicum.statsserver.stats.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+
+/**
+ * Half-open time range {@code [from, to)} answered from a single storage tier.
+ */
+@Data
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+public class QuerySegment {
+    StatsTier tier;
+    LocalDateTime from;
+    LocalDateTime to;
+}
@@ -0,0 +1,25 @@
+package ru.practicum.statsserver.stats.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.Comparator;
+
+@Data
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+public class RollupKey {
+    /**
+     * Order in which counter rows are locked, so concurrent writers never deadlock on each other.
+     */
+    public static final Comparator<RollupKey> LOCK_ORDER = Comparator.comparingInt(RollupKey::getUriId)
+            .thenComparing(RollupKey::getBucket)
+            .thenComparingInt(RollupKey::getAppId);
+
+    int appId;
+    int uriId;
+    LocalDateTime bucket;
+}
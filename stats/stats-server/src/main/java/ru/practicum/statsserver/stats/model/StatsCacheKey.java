@@ -0,0 +1,27 @@
+package ru.practicum.statsserver.stats.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Parameters of a statistics query as used by the result cache.
+ */
+@Data
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+public class StatsCacheKey {
+    LocalDateTime start;
+    LocalDateTime end;
+
+    /**
+     * Sorted distinct URIs, or null for all URIs.
+     */
+    List<String> uris;
+    boolean unique;
+    boolean approximate;
+}
@@ -0,0 +1,59 @@
+package ru.practicum.statsserver.stats.model;
+
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Storage tiers that can answer a hit count query, from the finest to the coarsest granularity.
+ * Hits are written to every tier except the compacted one, which only holds days whose
+ * finer rows were folded into it by {@code StatsCompactor}.
+ */
+public enum StatsTier {
+    /**
+     * Raw hits in the {@code stats} table.
+     */
+    RAW(null, null, false),
+
+    /**
+     * Per-minute counters.
+     */
+    MINUTE("stats_minute", ChronoUnit.MINUTES, false),
+
+    /**
+     * Per-hour counters.
+     */
+    HOUR("stats_hour", ChronoUnit.HOURS, false),
+
+    /**
+     * Per-day counters and unique visitor sketches of compacted days.
+     */
+    DAY("stats_day", ChronoUnit.DAYS, true);
+
+    private final String table;
+    private final ChronoUnit unit;
+    private final boolean compacted;
+
+    StatsTier(String table, ChronoUnit unit, boolean compacted) {
+        this.table = table;
+        this.unit = unit;
+        this.compacted = compacted;
+    }
+
+    public String getTable() {
+        return table;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    public boolean isRollup() {
+        return unit != null;
+    }
+
+    /**
+     * Whether the tier is filled by compaction instead of by ingestion.
+     */
+    public boolean isCompacted() {
+        return compacted;
+    }
+}
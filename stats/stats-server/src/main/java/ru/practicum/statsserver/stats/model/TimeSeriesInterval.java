@@ -0,0 +1,43 @@
+package ru.practicum.statsserver.stats.model;
+
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.Optional;
+
+/**
+ * Bucket sizes accepted by GET /stats/timeseries.
+ */
+public enum TimeSeriesInterval {
+    MINUTE("1m", ChronoUnit.MINUTES, "minute"),
+    HOUR("1h", ChronoUnit.HOURS, "hour"),
+    DAY("1d", ChronoUnit.DAYS, "day");
+
+    private final String value;
+    private final ChronoUnit unit;
+    private final String truncUnit;
+
+    TimeSeriesInterval(String value, ChronoUnit unit, String truncUnit) {
+        this.value = value;
+        this.unit = unit;
+        this.truncUnit = truncUnit;
+    }
+
+    public String getValue() {
+        return value;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    /**
+     * @return field name passed to {@code date_trunc}.
+     */
+    public String getTruncUnit() {
+        return truncUnit;
+    }
+
+    public static Optional<TimeSeriesInterval> fromValue(String value) {
+        return Arrays.stream(values()).filter(interval -> interval.value.equals(value)).findFirst();
+    }
+}
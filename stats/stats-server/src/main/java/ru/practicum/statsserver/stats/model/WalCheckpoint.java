@@ -0,0 +1,17 @@
+package ru.practicum.statsserver.stats.model;
+
+import lombok.AccessLevel;
+import lombok.Data;
+import lombok.RequiredArgsConstructor;
+import lombok.experimental.FieldDefaults;
+
+/**
+ * Position in the write-ahead log up to which hits have been loaded into the database.
+ */
+@Data
+@RequiredArgsConstructor
+@FieldDefaults(makeFinal = true, level = AccessLevel.PRIVATE)
+public class WalCheckpoint {
+    long segment;
+    int offset;
+}
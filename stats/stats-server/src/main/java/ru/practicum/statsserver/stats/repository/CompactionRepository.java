@@ -0,0 +1,111 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.StatsTier;
+import ru.practicum.statsserver.stats.util.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+@Repository
+@RequiredArgsConstructor
+public class CompactionRepository {
+    private static final String SELECT_COMPACTED_BEFORE = "SELECT compacted_before FROM stats_compaction WHERE id = 1";
+    private static final String UPDATE_COMPACTED_BEFORE = "UPDATE stats_compaction " +
+            "SET compacted_before = GREATEST(compacted_before, ?) WHERE id = 1";
+    private static final String SELECT_OLDEST_BUCKET = "SELECT MIN(bucket) FROM stats_hour WHERE bucket < ?";
+    private static final String MOVE_HOURS = "WITH moved AS (DELETE FROM stats_hour " +
+            "WHERE bucket >= ? AND bucket < ? RETURNING app_id, uri_id, hits) " +
+            "INSERT INTO stats_day (app_id, uri_id, bucket, hits) " +
+            "SELECT app_id, uri_id, ?, SUM(hits) FROM moved GROUP BY app_id, uri_id ORDER BY uri_id, app_id " +
+            "ON CONFLICT (uri_id, bucket, app_id) DO UPDATE SET hits = stats_day.hits + EXCLUDED.hits";
+    private static final String DELETE_SKETCHES = "DELETE FROM stats_ip_sketch " +
+            "WHERE bucket >= ? AND bucket < ? RETURNING app_id, uri_id, sketch";
+    private static final String DELETE_HITS = "DELETE FROM stats WHERE (id, timestamp) IN " +
+            "(SELECT id, timestamp FROM stats WHERE timestamp < ? LIMIT ?)";
+    private static final String DELETE_BUCKETS = "DELETE FROM %1$s WHERE (uri_id, bucket, app_id) IN " +
+            "(SELECT uri_id, bucket, app_id FROM %1$s WHERE bucket < ? LIMIT ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * @return start of the first day that is not compacted, or empty when nothing is compacted.
+     */
+    public Optional<LocalDateTime> findCompactedBefore() {
+        Timestamp compactedBefore = jdbcTemplate.queryForObject(SELECT_COMPACTED_BEFORE, Timestamp.class);
+        return Optional.ofNullable(compactedBefore).map(Timestamp::toLocalDateTime);
+    }
+
+    /**
+     * Moves the compaction boundary forward. It never moves back.
+     *
+     * @param compactedBefore start of the first day that is not compacted.
+     */
+    public void saveCompactedBefore(LocalDateTime compactedBefore) {
+        jdbcTemplate.update(UPDATE_COMPACTED_BEFORE, Timestamp.valueOf(compactedBefore));
+    }
+
+    /**
+     * Finds the oldest hour counter before {@code before}. Hour counters are the source that
+     * compaction folds into days, so this is the oldest hour that still has to be compacted.
+     */
+    public Optional<LocalDateTime> findOldestHour(LocalDateTime before) {
+        Timestamp bucket = jdbcTemplate.queryForObject(SELECT_OLDEST_BUCKET, Timestamp.class, Timestamp.valueOf(before));
+        return Optional.ofNullable(bucket).map(Timestamp::toLocalDateTime);
+    }
+
+    /**
+     * Deletes hour counters of one day and adds their sums to the day counters in the same statement,
+     * so hits counted concurrently are either moved or left for the next run, never lost.
+     *
+     * @param day start of the day.
+     */
+    public void moveHours(LocalDateTime day) {
+        Timestamp from = Timestamp.valueOf(day);
+        jdbcTemplate.update(MOVE_HOURS, from, Timestamp.valueOf(day.plus(1, StatsTier.DAY.getUnit())), from);
+    }
+
+    /**
+     * Deletes hourly sketches of one day, passing each deleted sketch to the handler.
+     *
+     * @param day     start of the day.
+     * @param handler receives app id, URI id and sketch for each deleted row.
+     */
+    public void deleteSketches(LocalDateTime day, SketchRepository.SketchHandler handler) {
+        RowCallbackHandler rowHandler = rs -> handler.accept(rs.getInt("app_id"), rs.getInt("uri_id"),
+                HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        jdbcTemplate.query(DELETE_SKETCHES, rowHandler, Timestamp.valueOf(day), Timestamp.valueOf(day.plus(1, StatsTier.DAY.getUnit())));
+    }
+
+    /**
+     * Deletes at most {@code limit} raw hits timestamped before {@code before}.
+     *
+     * @return number of deleted hits.
+     */
+    public int deleteHits(LocalDateTime before, int limit) {
+        return jdbcTemplate.update(DELETE_HITS, Timestamp.valueOf(before), limit);
+    }
+
+    /**
+     * Deletes at most {@code limit} minute counters of buckets before {@code before}.
+     *
+     * @return number of deleted counters.
+     */
+    public int deleteMinutes(LocalDateTime before, int limit) {
+        return deleteBuckets(StatsTier.MINUTE.getTable(), before, limit);
+    }
+
+    /**
+     * Deletes at most {@code limit} rows of buckets before {@code before} from a counter or sketch table.
+     *
+     * @param table table keyed by app id, URI id and bucket, never taken from user input.
+     * @return number of deleted rows.
+     */
+    public int deleteBuckets(String table, LocalDateTime before, int limit) {
+        return jdbcTemplate.update(String.format(DELETE_BUCKETS, table), Timestamp.valueOf(before), limit);
+    }
+}
@@ -0,0 +1,57 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.DictionaryTable;
+
+import java.util.Collection;
+import java.util.HashMap;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class DictionaryRepository {
+    private static final String INSERT_NAME = "INSERT INTO %s (name) VALUES (?) ON CONFLICT (name) DO NOTHING";
+    private static final String SELECT_ID = "SELECT id FROM %s WHERE name = ?";
+    private static final String SELECT_BY_NAMES = "SELECT id, name FROM %s WHERE name IN (:names)";
+    private static final String SELECT_BY_IDS = "SELECT id, name FROM %s WHERE id IN (:ids)";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Returns the id of a name, adding the name to the dictionary if it is missing.
+     * The lookup runs as a separate statement so that it sees a row committed by a concurrent insert.
+     *
+     * @param table dictionary to use.
+     * @param name  name to look up.
+     * @return dictionary id of the name.
+     */
+    public int getOrCreateId(DictionaryTable table, String name) {
+        jdbcTemplate.update(String.format(INSERT_NAME, table.getTable()), name);
+        return jdbcTemplate.queryForObject(String.format(SELECT_ID, table.getTable()), Integer.class, name);
+    }
+
+    public Map<String, Integer> findIds(DictionaryTable table, Collection<String> names) {
+        Map<String, Integer> ids = new HashMap<>();
+        namedJdbcTemplate.query(String.format(SELECT_BY_NAMES, table.getTable()),
+                new MapSqlParameterSource("names", names),
+                rs -> {
+                    ids.put(rs.getString("name"), rs.getInt("id"));
+                });
+        return ids;
+    }
+
+    public Map<Integer, String> findNames(DictionaryTable table, Collection<Integer> ids) {
+        Map<Integer, String> names = new HashMap<>();
+        namedJdbcTemplate.query(String.format(SELECT_BY_IDS, table.getTable()),
+                new MapSqlParameterSource("ids", ids),
+                rs -> {
+                    names.put(rs.getInt("id"), rs.getString("name"));
+                });
+        return names;
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+@RequiredArgsConstructor
+public class HitBatchRepository {
+    private static final String INSERT_HIT = "INSERT INTO stats (app_id, uri_id, ip, timestamp) VALUES (?, ?, CAST(? AS inet), ?)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Inserts hits with JDBC batching. Together with {@code reWriteBatchedInserts=true}
+     * in the datasource URL the driver turns every batch into multi-row INSERT statements.
+     *
+     * @param hits      hits to insert, with dictionary ids already resolved.
+     * @param batchSize number of rows sent to the database in one batch.
+     */
+    public void saveAll(List<EndpointHit> hits, int batchSize) {
+        jdbcTemplate.batchUpdate(INSERT_HIT, hits, batchSize, (ps, hit) -> {
+            ps.setInt(1, hit.getAppId());
+            ps.setInt(2, hit.getUriId());
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+        });
+    }
+}
@@ -0,0 +1,162 @@
+package ru.practicum.statsserver.stats.repository;
+
+import org.postgresql.PGConnection;
+import org.springframework.jdbc.core.ConnectionCallback;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.StatsTier;
+
+import javax.sql.DataSource;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.function.Consumer;
+
+/**
+ * Moves hits in and out of the database with {@code COPY} in CSV with the columns app, uri, ip and timestamp.
+ * Imported hits are copied into a temporary staging table first and then spread over the dictionaries,
+ * the raw table and the rollups with set-based statements. All methods except {@link #copyOut} must be
+ * called in one transaction, as the staging table is dropped on commit.
+ */
+@Repository
+public class HitCopyRepository {
+    private static final int FETCH_SIZE = 1000;
+    private static final DateTimeFormatter LITERAL_FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String CREATE_STAGING = "CREATE TEMP TABLE stats_import (" +
+            "app VARCHAR(255) NOT NULL, uri VARCHAR(255) NOT NULL, ip INET NOT NULL, timestamp TIMESTAMP NOT NULL" +
+            ") ON COMMIT DROP";
+    private static final String COPY_IN = "COPY stats_import (app, uri, ip, timestamp) " +
+            "FROM STDIN WITH (FORMAT csv, HEADER true)";
+    private static final String INSERT_NAMES = "INSERT INTO %s (name) SELECT DISTINCT %s FROM stats_import " +
+            "ON CONFLICT (name) DO NOTHING";
+    private static final String RESOLVED = "stats_import i " +
+            "JOIN stats_app a ON a.name = i.app " +
+            "JOIN stats_uri u ON u.name = i.uri";
+    private static final String INSERT_HITS = "INSERT INTO stats (app_id, uri_id, ip, timestamp) " +
+            "SELECT a.id, u.id, i.ip, i.timestamp FROM " + RESOLVED;
+    private static final String UPSERT_ROLLUP = "INSERT INTO %1$s (app_id, uri_id, bucket, hits) " +
+            "SELECT a.id, u.id, date_trunc('%2$s', i.timestamp), COUNT(*) FROM " + RESOLVED +
+            " GROUP BY 1, 2, 3 ORDER BY 2, 3, 1 " +
+            "ON CONFLICT (uri_id, bucket, app_id) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+    private static final String SELECT_DISTINCT_IPS = "SELECT DISTINCT u.id AS uri_id, " +
+            "date_trunc('%s', i.timestamp) AS bucket, a.id AS app_id, host(i.ip) AS ip FROM " + RESOLVED +
+            " ORDER BY uri_id, bucket, app_id";
+    private static final String SELECT_HITS = "SELECT i.app, i.uri, a.id AS app_id, u.id AS uri_id, host(i.ip) AS ip, " +
+            "i.timestamp FROM " + RESOLVED + " WHERE i.timestamp >= ? AND i.timestamp < ?";
+    private static final String COPY_OUT = "COPY (SELECT a.name AS app, u.name AS uri, host(s.ip) AS ip, s.timestamp " +
+            "FROM stats s JOIN stats_app a ON a.id = s.app_id JOIN stats_uri u ON u.id = s.uri_id " +
+            "WHERE s.timestamp BETWEEN '%s' AND '%s' ORDER BY s.timestamp) " +
+            "TO STDOUT WITH (FORMAT csv, HEADER true)";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public HitCopyRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+        this.jdbcTemplate.setFetchSize(FETCH_SIZE);
+    }
+
+    /**
+     * Creates the staging table and copies CSV rows into it.
+     *
+     * @param csv CSV with a header line.
+     * @return number of rows copied.
+     */
+    public long copyIn(InputStream csv) {
+        jdbcTemplate.execute(CREATE_STAGING);
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyIn(COPY_IN, csv);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    /**
+     * Adds staged app and URI names missing from the dictionaries.
+     */
+    public void insertNames() {
+        jdbcTemplate.update(String.format(INSERT_NAMES, "stats_app", "app"));
+        jdbcTemplate.update(String.format(INSERT_NAMES, "stats_uri", "uri"));
+    }
+
+    /**
+     * Inserts staged hits into the raw table.
+     *
+     * @return number of hits inserted.
+     */
+    public int insertHits() {
+        return jdbcTemplate.update(INSERT_HITS);
+    }
+
+    /**
+     * Adds staged hit counts to a rollup tier. Rows are upserted in the lock order of the online writers.
+     */
+    public void incrementRollup(StatsTier tier) {
+        jdbcTemplate.update(String.format(UPSERT_ROLLUP, tier.getTable(), truncUnit(tier)));
+    }
+
+    /**
+     * Reads distinct staged IPs per app, URI and bucket, ordered by URI, bucket and app.
+     */
+    public void forEachDistinctIp(StatsTier tier, IpHandler handler) {
+        jdbcTemplate.query(String.format(SELECT_DISTINCT_IPS, truncUnit(tier)), rs -> {
+            handler.accept(rs.getInt("app_id"), rs.getInt("uri_id"),
+                    rs.getTimestamp("bucket").toLocalDateTime(), rs.getString("ip"));
+        });
+    }
+
+    /**
+     * Reads staged hits timestamped within {@code [from, to)}.
+     */
+    public void forEachHit(LocalDateTime from, LocalDateTime to, Consumer<EndpointHit> consumer) {
+        jdbcTemplate.query(SELECT_HITS, rs -> {
+            consumer.accept(EndpointHit.builder()
+                    .app(rs.getString("app"))
+                    .uri(rs.getString("uri"))
+                    .appId(rs.getInt("app_id"))
+                    .uriId(rs.getInt("uri_id"))
+                    .ip(rs.getString("ip"))
+                    .timestamp(rs.getTimestamp("timestamp").toLocalDateTime())
+                    .build());
+        }, Timestamp.valueOf(from), Timestamp.valueOf(to));
+    }
+
+    /**
+     * Writes hits timestamped within {@code [start, end]} as CSV in chronological order.
+     *
+     * @param start start of the range, inclusive.
+     * @param end   end of the range, inclusive.
+     * @param out   stream receiving the CSV.
+     * @return number of rows written.
+     */
+    public long copyOut(LocalDateTime start, LocalDateTime end, OutputStream out) {
+        String sql = String.format(COPY_OUT, start.format(LITERAL_FORMAT), end.format(LITERAL_FORMAT));
+        return jdbcTemplate.execute((ConnectionCallback<Long>) connection -> {
+            try {
+                return connection.unwrap(PGConnection.class).getCopyAPI().copyOut(sql, out);
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        });
+    }
+
+    private static String truncUnit(StatsTier tier) {
+        return switch (tier) {
+            case MINUTE -> "minute";
+            case HOUR -> "hour";
+            case DAY -> "day";
+            case RAW -> throw new IllegalArgumentException("Raw tier has no buckets");
+        };
+    }
+
+    @FunctionalInterface
+    public interface IpHandler {
+        void accept(int appId, int uriId, LocalDateTime bucket, String ip);
+    }
+}
@@ -0,0 +1,107 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.config.PartitionInterval;
+
+import java.sql.Timestamp;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Locale;
+
+@Repository
+@RequiredArgsConstructor
+public class PartitionRepository {
+    private static final String SELECT_PARTITIONS = "SELECT c.relname FROM pg_inherits i " +
+            "JOIN pg_class c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'stats'::regclass";
+    private static final String SELECT_DEFAULT_PERIODS = "SELECT DISTINCT date_trunc('%s', timestamp) " +
+            "FROM stats_default WHERE timestamp < ?";
+    private static final String LOCK_DEFAULT = "LOCK TABLE stats_default IN ACCESS EXCLUSIVE MODE";
+    private static final String CREATE_TABLE = "CREATE TABLE IF NOT EXISTS %s " +
+            "(LIKE stats INCLUDING DEFAULTS INCLUDING CONSTRAINTS)";
+    private static final String MOVE_FROM_DEFAULT = "WITH moved AS (DELETE FROM stats_default " +
+            "WHERE timestamp >= ? AND timestamp < ? RETURNING *) " +
+            "INSERT INTO %s SELECT * FROM moved";
+    private static final String ATTACH_PARTITION = "ALTER TABLE stats ATTACH PARTITION %s " +
+            "FOR VALUES FROM ('%s') TO ('%s')";
+    private static final String DELETE_DEFAULT = "DELETE FROM stats_default WHERE (id, timestamp) IN " +
+            "(SELECT id, timestamp FROM stats_default WHERE timestamp < ? LIMIT ?)";
+    private static final String DETACH_PARTITION = "ALTER TABLE stats DETACH PARTITION %s";
+    private static final String DROP_PARTITION = "DROP TABLE %s";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public List<String> findPartitionNames() {
+        return jdbcTemplate.queryForList(SELECT_PARTITIONS, String.class);
+    }
+
+    /**
+     * Finds the periods that have hits in the default partition, i.e. periods without a partition of their own.
+     *
+     * @param before only periods of hits timestamped before this day are returned.
+     * @return first days of the periods.
+     */
+    public List<LocalDate> findDefaultPeriods(PartitionInterval interval, LocalDate before) {
+        String sql = String.format(SELECT_DEFAULT_PERIODS, interval.name().toLowerCase(Locale.ROOT));
+        return jdbcTemplate.queryForList(sql, Timestamp.class, Timestamp.valueOf(before.atStartOfDay())).stream()
+                .map(timestamp -> timestamp.toLocalDateTime().toLocalDate())
+                .toList();
+    }
+
+    /**
+     * Locks the default partition until the end of the transaction, so no hits of a period
+     * being partitioned can land in it before the new partition is attached.
+     */
+    public void lockDefault() {
+        jdbcTemplate.execute(LOCK_DEFAULT);
+    }
+
+    /**
+     * Creates a standalone table shaped like the stats table unless it already exists.
+     *
+     * @param name partition table name, generated by the caller and never taken from user input.
+     */
+    public void createTable(String name) {
+        jdbcTemplate.execute(String.format(CREATE_TABLE, name));
+    }
+
+    /**
+     * Moves hits of {@code [from, to)} from the default partition to the given table.
+     *
+     * @return number of moved hits.
+     */
+    public int moveFromDefault(String name, LocalDate from, LocalDate to) {
+        return jdbcTemplate.update(String.format(MOVE_FROM_DEFAULT, name),
+                Timestamp.valueOf(from.atStartOfDay()), Timestamp.valueOf(to.atStartOfDay()));
+    }
+
+    /**
+     * Attaches a table as the partition covering {@code [from, to)}. Fails if the default partition
+     * still holds hits of that range.
+     *
+     * @param from first day of the partition, inclusive.
+     * @param to   first day after the partition, exclusive.
+     */
+    public void attach(String name, LocalDate from, LocalDate to) {
+        jdbcTemplate.execute(String.format(ATTACH_PARTITION, name, from.atStartOfDay(), to.atStartOfDay()));
+    }
+
+    /**
+     * Deletes at most {@code limit} hits timestamped before {@code before} from the default partition.
+     *
+     * @return number of deleted hits.
+     */
+    public int deleteDefault(LocalDate before, int limit) {
+        return jdbcTemplate.update(DELETE_DEFAULT, Timestamp.valueOf(before.atStartOfDay()), limit);
+    }
+
+    public void detach(String name) {
+        jdbcTemplate.execute(String.format(DETACH_PARTITION, name));
+    }
+
+    public void drop(String name) {
+        jdbcTemplate.execute(String.format(DROP_PARTITION, name));
+    }
+}
@@ -0,0 +1,100 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.HitCount;
+import ru.practicum.statsserver.stats.model.RollupKey;
+import ru.practicum.statsserver.stats.model.StatsTier;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+    private static final String UPSERT = "INSERT INTO %1$s (app_id, uri_id, bucket, hits) VALUES (?, ?, ?, ?) " +
+            "ON CONFLICT (uri_id, bucket, app_id) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+    private static final String SELECT_STATS = "SELECT app_id, uri_id, SUM(hits) AS hits FROM %s " +
+            "WHERE bucket >= :from AND bucket < :to";
+    private static final String SELECT_COUNTERS = "SELECT app_id, uri_id, bucket, hits FROM %s " +
+            "WHERE bucket >= :from AND bucket < :to";
+    private static final String URI_FILTER = " AND uri_id IN (:uriIds)";
+    private static final String GROUP_BY = " GROUP BY app_id, uri_id";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Adds hit counts to the counters of a rollup tier, creating missing counters.
+     *
+     * @param tier   rollup tier to update.
+     * @param counts hit counts per bucket, iterated in {@link RollupKey#LOCK_ORDER}.
+     */
+    public void increment(StatsTier tier, Map<RollupKey, Long> counts) {
+        if (counts.isEmpty()) {
+            return;
+        }
+        List<Map.Entry<RollupKey, Long>> rows = new ArrayList<>(counts.entrySet());
+        jdbcTemplate.batchUpdate(String.format(UPSERT, tier.getTable()), rows, rows.size(), (ps, row) -> {
+            ps.setInt(1, row.getKey().getAppId());
+            ps.setInt(2, row.getKey().getUriId());
+            ps.setTimestamp(3, Timestamp.valueOf(row.getKey().getBucket()));
+            ps.setLong(4, row.getValue());
+        });
+    }
+
+    /**
+     * Sums rollup counters whose buckets start within {@code [from, to)}.
+     *
+     * @param tier   rollup tier to read.
+     * @param from   start of the range, inclusive and aligned to the tier's bucket.
+     * @param to     end of the range, exclusive and aligned to the tier's bucket.
+     * @param uriIds URI ids to filter by, or null for all URIs.
+     * @return hit counts per app and URI.
+     */
+    public List<HitCount> findStats(StatsTier tier, LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        StringBuilder sql = new StringBuilder(String.format(SELECT_STATS, tier.getTable()));
+        if (uriIds != null) {
+            sql.append(URI_FILTER);
+            params.addValue("uriIds", uriIds);
+        }
+        sql.append(GROUP_BY);
+
+        return namedJdbcTemplate.query(sql.toString(), params, (rs, rowNum) -> new HitCount(
+                rs.getInt("app_id"),
+                rs.getInt("uri_id"),
+                rs.getLong("hits")));
+    }
+
+    /**
+     * Passes every rollup counter whose bucket starts within {@code [from, to)} to a handler.
+     *
+     * @param tier    rollup tier to read.
+     * @param from    start of the range, inclusive.
+     * @param to      end of the range, exclusive.
+     * @param handler receives each counter.
+     */
+    public void forEachCounter(StatsTier tier, LocalDateTime from, LocalDateTime to, CounterHandler handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        namedJdbcTemplate.query(String.format(SELECT_COUNTERS, tier.getTable()), params, rs -> {
+            handler.accept(rs.getInt("app_id"), rs.getInt("uri_id"),
+                    rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits"));
+        });
+    }
+
+    @FunctionalInterface
+    public interface CounterHandler {
+        void accept(int appId, int uriId, LocalDateTime bucket, long hits);
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.RollupKey;
+import ru.practicum.statsserver.stats.model.StatsTier;
+import ru.practicum.statsserver.stats.util.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+@Repository
+@RequiredArgsConstructor
+public class SketchRepository {
+    private static final String INSERT_EMPTY = "INSERT INTO %s (app_id, uri_id, bucket, sketch) " +
+            "VALUES (?, ?, ?, '') ON CONFLICT (uri_id, bucket, app_id) DO NOTHING";
+    private static final String SELECT_FOR_UPDATE = "SELECT app_id, uri_id, bucket, sketch FROM %s " +
+            "WHERE (uri_id, bucket, app_id) IN (:keys) ORDER BY uri_id, bucket, app_id FOR UPDATE";
+    private static final String UPDATE_SKETCH = "UPDATE %s SET sketch = ? " +
+            "WHERE uri_id = ? AND bucket = ? AND app_id = ?";
+    private static final String SELECT_SKETCHES = "SELECT app_id, uri_id, sketch FROM %s " +
+            "WHERE bucket >= :from AND bucket < :to";
+    private static final String SELECT_DISTINCT_IPS = "SELECT DISTINCT app_id, uri_id, host(ip) AS ip FROM stats " +
+            "WHERE timestamp >= :from AND timestamp < :to";
+    private static final String URI_FILTER = " AND uri_id IN (:uriIds)";
+    private static final int MERGE_CHUNK_SIZE = 1000;
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Merges sketches into the stored ones. Missing rows are created first, so that every
+     * stored sketch can be locked and merged without losing concurrent updates. Rows removed by
+     * compaction between the two steps are created again. Keys are merged in chunks of
+     * {@value #MERGE_CHUNK_SIZE}, keeping the statements bounded; the chunks follow the lock order.
+     *
+     * @param tier     {@link StatsTier#HOUR} for hourly sketches or {@link StatsTier#DAY} for compacted days.
+     * @param sketches sketches per bucket, iterated in {@link RollupKey#LOCK_ORDER}.
+     */
+    public void merge(StatsTier tier, Map<RollupKey, HyperLogLog> sketches) {
+        String table = sketchTable(tier);
+        List<RollupKey> keys = new ArrayList<>(sketches.keySet());
+        for (int from = 0; from < keys.size(); from += MERGE_CHUNK_SIZE) {
+            mergeChunk(table, keys.subList(from, Math.min(from + MERGE_CHUNK_SIZE, keys.size())), sketches);
+        }
+    }
+
+    private void mergeChunk(String table, List<RollupKey> keys, Map<RollupKey, HyperLogLog> sketches) {
+        jdbcTemplate.batchUpdate(String.format(INSERT_EMPTY, table), keys, keys.size(), (ps, key) -> {
+            ps.setInt(1, key.getAppId());
+            ps.setInt(2, key.getUriId());
+            ps.setTimestamp(3, Timestamp.valueOf(key.getBucket()));
+        });
+
+        List<Object[]> keyTuples = keys.stream()
+                .map(key -> new Object[]{key.getUriId(), Timestamp.valueOf(key.getBucket()), key.getAppId()})
+                .toList();
+        Map<RollupKey, HyperLogLog> merged = new HashMap<>();
+        namedJdbcTemplate.query(String.format(SELECT_FOR_UPDATE, table),
+                new MapSqlParameterSource("keys", keyTuples), rs -> {
+                    RollupKey key = new RollupKey(rs.getInt("app_id"), rs.getInt("uri_id"),
+                            rs.getTimestamp("bucket").toLocalDateTime());
+                    HyperLogLog sketch = HyperLogLog.fromBytes(rs.getBytes("sketch"));
+                    sketch.merge(sketches.get(key));
+                    merged.put(key, sketch);
+                });
+
+        List<RollupKey> lockedKeys = keys.stream().filter(merged::containsKey).toList();
+        jdbcTemplate.batchUpdate(String.format(UPDATE_SKETCH, table), lockedKeys, lockedKeys.size(), (ps, key) -> {
+            ps.setBytes(1, merged.get(key).toBytes());
+            ps.setInt(2, key.getUriId());
+            ps.setTimestamp(3, Timestamp.valueOf(key.getBucket()));
+            ps.setInt(4, key.getAppId());
+        });
+
+        if (lockedKeys.size() < keys.size()) {
+            mergeChunk(table, keys.stream().filter(key -> !merged.containsKey(key)).toList(), sketches);
+        }
+    }
+
+    /**
+     * Reads every stored sketch whose bucket starts within {@code [from, to)}.
+     *
+     * @param tier    {@link StatsTier#HOUR} for hourly sketches or {@link StatsTier#DAY} for compacted days.
+     * @param from    start of the range, inclusive.
+     * @param to      end of the range, exclusive.
+     * @param uriIds  URI ids to filter by, or null for all URIs.
+     * @param handler receives app id, URI id and sketch for each row.
+     */
+    public void forEachSketch(StatsTier tier, LocalDateTime from, LocalDateTime to, List<Integer> uriIds,
+                              SketchHandler handler) {
+        query(String.format(SELECT_SKETCHES, sketchTable(tier)), from, to, uriIds, rs -> handler.accept(rs.getInt("app_id"), rs.getInt("uri_id"),
+                HyperLogLog.fromBytes(rs.getBytes("sketch"))));
+    }
+
+    /**
+     * Reads distinct (app id, uri id, ip) triples of raw hits within {@code [from, to)}.
+     * Used to fill the partially covered edges of a range that sketches cannot answer.
+     *
+     * @param from    start of the range, inclusive.
+     * @param to      end of the range, exclusive.
+     * @param uriIds  URI ids to filter by, or null for all URIs.
+     * @param handler receives app id, URI id and IP for each row.
+     */
+    public void forEachDistinctIp(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, IpHandler handler) {
+        query(SELECT_DISTINCT_IPS, from, to, uriIds, rs -> handler.accept(rs.getInt("app_id"), rs.getInt("uri_id"),
+                rs.getString("ip")));
+    }
+
+    private void query(String sql, LocalDateTime from, LocalDateTime to, List<Integer> uriIds,
+                       RowCallbackHandler handler) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        if (uriIds != null) {
+            sql += URI_FILTER;
+            params.addValue("uriIds", uriIds);
+        }
+        namedJdbcTemplate.query(sql, params, handler);
+    }
+
+    private static String sketchTable(StatsTier tier) {
+        return switch (tier) {
+            case HOUR -> "stats_ip_sketch";
+            case DAY -> tier.getTable();
+            case RAW, MINUTE -> throw new IllegalArgumentException("No sketches are kept for tier " + tier);
+        };
+    }
+
+    @FunctionalInterface
+    public interface SketchHandler {
+        void accept(int appId, int uriId, HyperLogLog sketch);
+    }
+
+    @FunctionalInterface
+    public interface IpHandler {
+        void accept(int appId, int uriId, String ip);
+    }
+}
@@ -1,13 +1,37 @@
 package ru.practicum.statsserver.stats.repository;
 
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
 import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.HitCount;
 
 import java.time.LocalDateTime;
 import java.util.List;
 
 public interface StatsRepository extends JpaRepository<EndpointHit, Long> {
-    List<EndpointHit> findByTimestampBetween(LocalDateTime start, LocalDateTime end);
+    @Query("SELECT new ru.practicum.statsserver.stats.model.HitCount(h.appId, h.uriId, COUNT(h.id)) " +
+            "FROM EndpointHit h " +
+            "WHERE h.timestamp >= :from AND h.timestamp < :to " +
+            "GROUP BY h.appId, h.uriId")
+    List<HitCount> findStats(LocalDateTime from, LocalDateTime to);
 
-    List<EndpointHit> findByTimestampBetweenAndUriIn(LocalDateTime start, LocalDateTime end, List<String> uris);
-}
\ No newline at end of file
+    @Query("SELECT new ru.practicum.statsserver.stats.model.HitCount(h.appId, h.uriId, COUNT(h.id)) " +
+            "FROM EndpointHit h " +
+            "WHERE h.timestamp >= :from AND h.timestamp < :to AND h.uriId IN :uriIds " +
+            "GROUP BY h.appId, h.uriId")
+    List<HitCount> findStatsByUris(LocalDateTime from, LocalDateTime to, List<Integer> uriIds);
+
+    @Query("SELECT new ru.practicum.statsserver.stats.model.HitCount(h.appId, h.uriId, COUNT(DISTINCT h.ip)) " +
+            "FROM EndpointHit h " +
+            "WHERE h.timestamp BETWEEN :start AND :end " +
+            "GROUP BY h.appId, h.uriId " +
+            "ORDER BY COUNT(DISTINCT h.ip) DESC")
+    List<HitCount> findUniqueStats(LocalDateTime start, LocalDateTime end);
+
+    @Query("SELECT new ru.practicum.statsserver.stats.model.HitCount(h.appId, h.uriId, COUNT(DISTINCT h.ip)) " +
+            "FROM EndpointHit h " +
+            "WHERE h.timestamp BETWEEN :start AND :end AND h.uriId IN :uriIds " +
+            "GROUP BY h.appId, h.uriId " +
+            "ORDER BY COUNT(DISTINCT h.ip) DESC")
+    List<HitCount> findUniqueStatsByUris(LocalDateTime start, LocalDateTime end, List<Integer> uriIds);
+}
@@ -0,0 +1,125 @@
+package ru.practicum.statsserver.stats.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.model.QuerySegment;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.Consumer;
+
+/**
+ * Runs statistics queries fully aggregated, sorted and resolved to names in the database
+ * and reads the result through a server-side cursor, so rows can be passed on one by one.
+ * Must be called inside a transaction, otherwise the driver fetches the whole result at once.
+ */
+@Repository
+public class StatsStreamRepository {
+    private static final int FETCH_SIZE = 1000;
+    private static final String RAW_SEGMENT = "SELECT app_id, uri_id, COUNT(*) AS hits FROM stats " +
+            "WHERE timestamp >= :from%1$d AND timestamp < :to%1$d%2$s GROUP BY app_id, uri_id";
+    private static final String ROLLUP_SEGMENT = "SELECT app_id, uri_id, SUM(hits) AS hits FROM %3$s " +
+            "WHERE bucket >= :from%1$d AND bucket < :to%1$d%2$s GROUP BY app_id, uri_id";
+    private static final String UNIQUE = "SELECT app_id, uri_id, COUNT(DISTINCT ip) AS hits FROM stats " +
+            "WHERE timestamp BETWEEN :from0 AND :to0%s GROUP BY app_id, uri_id";
+    private static final String MERGE = "SELECT app_id, uri_id, SUM(hits) AS hits FROM (%s) s GROUP BY app_id, uri_id";
+    private static final String RESOLVE = "SELECT a.name AS app, u.name AS uri, t.hits FROM (%s) t " +
+            "JOIN stats_app a ON a.id = t.app_id " +
+            "JOIN stats_uri u ON u.id = t.uri_id " +
+            "ORDER BY t.hits DESC";
+    private static final String LIMIT = " ORDER BY hits DESC LIMIT :limit";
+    private static final String URI_FILTER = " AND uri_id IN (:uriIds)";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    public StatsStreamRepository(DataSource dataSource) {
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setFetchSize(FETCH_SIZE);
+        this.namedJdbcTemplate = new NamedParameterJdbcTemplate(jdbcTemplate);
+    }
+
+    /**
+     * Streams hit counts summed over all segments of a query plan.
+     *
+     * @param segments segments of the plan.
+     * @param uriIds   URI ids to filter by, or null for all URIs.
+     * @param consumer receives statistics in descending order of hits.
+     */
+    public void streamStats(List<QuerySegment> segments, List<Integer> uriIds, Consumer<ViewStatsDto> consumer) {
+        streamStats(segments, uriIds, null, consumer);
+    }
+
+    /**
+     * Streams the most visited entries of a query plan. The limit is applied before names are resolved.
+     *
+     * @param segments segments of the plan.
+     * @param uriIds   URI ids to filter by, or null for all URIs.
+     * @param limit    maximum number of entries, or null for no limit.
+     * @param consumer receives statistics in descending order of hits.
+     */
+    public void streamStats(List<QuerySegment> segments, List<Integer> uriIds, Integer limit,
+                            Consumer<ViewStatsDto> consumer) {
+        if (segments.isEmpty()) {
+            return;
+        }
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String uriFilter = addUriFilter(params, uriIds);
+        StringBuilder union = new StringBuilder();
+        for (int i = 0; i < segments.size(); i++) {
+            QuerySegment segment = segments.get(i);
+            if (i > 0) {
+                union.append(" UNION ALL ");
+            }
+            union.append(segment.getTier().isRollup()
+                    ? String.format(ROLLUP_SEGMENT, i, uriFilter, segment.getTier().getTable())
+                    : String.format(RAW_SEGMENT, i, uriFilter));
+            addRange(params, i, segment.getFrom(), segment.getTo());
+        }
+        String merged = String.format(MERGE, union);
+        if (limit != null) {
+            merged += LIMIT;
+            params.addValue("limit", limit);
+        }
+        stream(String.format(RESOLVE, merged), params, consumer);
+    }
+
+    /**
+     * Streams unique IP counts for the inclusive range {@code [start, end]}.
+     *
+     * @param start    start of the range, inclusive.
+     * @param end      end of the range, inclusive.
+     * @param uriIds   URI ids to filter by, or null for all URIs.
+     * @param consumer receives statistics in descending order of hits.
+     */
+    public void streamUniqueStats(LocalDateTime start, LocalDateTime end, List<Integer> uriIds,
+                                  Consumer<ViewStatsDto> consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource();
+        String uriFilter = addUriFilter(params, uriIds);
+        addRange(params, 0, start, end);
+        stream(String.format(RESOLVE, String.format(UNIQUE, uriFilter)), params, consumer);
+    }
+
+    private void stream(String sql, MapSqlParameterSource params, Consumer<ViewStatsDto> consumer) {
+        namedJdbcTemplate.query(sql, params, rs -> {
+            consumer.accept(new ViewStatsDto(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+        });
+    }
+
+    private static String addUriFilter(MapSqlParameterSource params, List<Integer> uriIds) {
+        if (uriIds == null) {
+            return "";
+        }
+        params.addValue("uriIds", uriIds);
+        return URI_FILTER;
+    }
+
+    private static void addRange(MapSqlParameterSource params, int index, LocalDateTime from, LocalDateTime to) {
+        params.addValue("from" + index, Timestamp.valueOf(from));
+        params.addValue("to" + index, Timestamp.valueOf(to));
+    }
+}
@@ -0,0 +1,90 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.QuerySegment;
+import ru.practicum.statsserver.stats.model.StatsTier;
+import ru.practicum.statsserver.stats.model.TimeSeriesInterval;
+import ru.practicum.statsserver.stats.util.HyperLogLog;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+
+@Repository
+@RequiredArgsConstructor
+public class TimeSeriesRepository {
+    private static final String SELECT_ROLLUP_BUCKETS = "SELECT date_trunc('%s', bucket) AS bucket, SUM(hits) AS hits " +
+            "FROM %s WHERE uri_id = :uriId AND bucket >= :from AND bucket < :to GROUP BY 1";
+    private static final String SELECT_RAW_BUCKETS = "SELECT date_trunc('%s', timestamp) AS bucket, COUNT(*) AS hits " +
+            "FROM stats WHERE uri_id = :uriId AND timestamp >= :from AND timestamp < :to GROUP BY 1";
+    private static final String SELECT_UNIQUE_BUCKETS = "SELECT date_trunc('%s', timestamp) AS bucket, " +
+            "COUNT(DISTINCT ip) AS hits FROM stats " +
+            "WHERE uri_id = :uriId AND timestamp >= :from AND timestamp < :to GROUP BY 1";
+    private static final String SELECT_DAY_SKETCHES = "SELECT bucket, sketch FROM stats_day " +
+            "WHERE uri_id = :uriId AND bucket >= :from AND bucket < :to";
+
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    /**
+     * Counts hits of one URI in a plan segment per bucket of the interval. The segment must not be read
+     * from a tier coarser than the interval, so that each of its rows falls into a single bucket.
+     *
+     * @param segment  segment to read.
+     * @param uriId    URI id.
+     * @param interval bucket size.
+     * @param handler  receives the start of each non-empty bucket and its hits, summed over apps.
+     */
+    public void forEachBucket(QuerySegment segment, int uriId, TimeSeriesInterval interval, BucketHandler handler) {
+        StatsTier tier = segment.getTier();
+        String sql = tier.isRollup()
+                ? String.format(SELECT_ROLLUP_BUCKETS, interval.getTruncUnit(), tier.getTable())
+                : String.format(SELECT_RAW_BUCKETS, interval.getTruncUnit());
+        query(sql, uriId, segment.getFrom(), segment.getTo(), handler);
+    }
+
+    /**
+     * Counts unique IPs of one URI per bucket of the interval within {@code [from, to)}.
+     *
+     * @param handler receives the start of each non-empty bucket and its unique hits over all apps.
+     */
+    public void forEachUniqueBucket(LocalDateTime from, LocalDateTime to, int uriId, TimeSeriesInterval interval,
+                                    BucketHandler handler) {
+        query(String.format(SELECT_UNIQUE_BUCKETS, interval.getTruncUnit()), uriId, from, to, handler);
+    }
+
+    /**
+     * Reads unique visitor sketches of one URI for compacted days starting within {@code [from, to)}.
+     *
+     * @param handler receives the start of the day and the sketch of one app.
+     */
+    public void forEachDaySketch(LocalDateTime from, LocalDateTime to, int uriId, DaySketchHandler handler) {
+        namedJdbcTemplate.query(SELECT_DAY_SKETCHES, params(uriId, from, to), rs -> {
+            handler.accept(rs.getTimestamp("bucket").toLocalDateTime(), HyperLogLog.fromBytes(rs.getBytes("sketch")));
+        });
+    }
+
+    private void query(String sql, int uriId, LocalDateTime from, LocalDateTime to, BucketHandler handler) {
+        namedJdbcTemplate.query(sql, params(uriId, from, to), rs -> {
+            handler.accept(rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits"));
+        });
+    }
+
+    private static MapSqlParameterSource params(int uriId, LocalDateTime from, LocalDateTime to) {
+        return new MapSqlParameterSource()
+                .addValue("uriId", uriId)
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+    }
+
+    @FunctionalInterface
+    public interface BucketHandler {
+        void accept(LocalDateTime bucket, long hits);
+    }
+
+    @FunctionalInterface
+    public interface DaySketchHandler {
+        void accept(LocalDateTime day, HyperLogLog sketch);
+    }
+}
@@ -0,0 +1,46 @@
+package ru.practicum.statsserver.stats.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.statsserver.stats.model.WalCheckpoint;
+
+/**
+ * Checkpoints of the write-ahead logs, one per node, as every node loads its own log from local disk.
+ */
+@Repository
+@RequiredArgsConstructor
+public class WalCheckpointRepository {
+    private static final String INSERT_CHECKPOINT = "INSERT INTO stats_wal_checkpoints (node, segment, \"offset\") " +
+            "VALUES (?, 0, 0) ON CONFLICT DO NOTHING";
+    private static final String SELECT_CHECKPOINT = "SELECT segment, \"offset\" FROM stats_wal_checkpoints WHERE node = ?";
+    private static final String UPDATE_CHECKPOINT = "UPDATE stats_wal_checkpoints SET segment = ?, \"offset\" = ? " +
+            "WHERE node = ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    /**
+     * Adds a checkpoint at the beginning of the log for a node seen for the first time.
+     *
+     * @param node node id, see {@link ru.practicum.statsserver.stats.config.WalProperties#getNodeId()}.
+     */
+    public void createIfMissing(String node) {
+        jdbcTemplate.update(INSERT_CHECKPOINT, node);
+    }
+
+    public WalCheckpoint find(String node) {
+        return jdbcTemplate.queryForObject(SELECT_CHECKPOINT, (rs, rowNum) ->
+                new WalCheckpoint(rs.getLong("segment"), rs.getInt("offset")), node);
+    }
+
+    /**
+     * Moves the checkpoint of a node. Called in the transaction that loads the hits before it,
+     * so hits are never loaded twice.
+     *
+     * @param node       node id.
+     * @param checkpoint new checkpoint.
+     */
+    public void save(String node, WalCheckpoint checkpoint) {
+        jdbcTemplate.update(UPDATE_CHECKPOINT, checkpoint.getSegment(), checkpoint.getOffset(), node);
+    }
+}
@@ -0,0 +1,154 @@
+package ru.practicum.statsserver.stats.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsserver.stats.config.IngestProperties;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Accepts hits into a bounded in-memory buffer and returns immediately.
+ * A dedicated writer thread drains the buffer and commits the hits in groups,
+ * either when {@code batchSize} hits have accumulated or when {@code flushInterval} has passed.
+ * On shutdown the remaining hits are committed in groups of {@code batchSize} as well.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "async")
+public class BufferedHitIngestor implements HitIngestor {
+    private static final long SHUTDOWN_TIMEOUT_MS = 10_000;
+
+    private final HitWriter hitWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final BlockingQueue<EndpointHit> buffer;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final Counter droppedHits;
+    private final Timer flushLatency;
+    private final Thread writer;
+    private volatile boolean running = true;
+
+    public BufferedHitIngestor(HitWriter hitWriter,
+                               TransactionTemplate transactionTemplate,
+                               IngestProperties ingestProperties,
+                               MeterRegistry meterRegistry) {
+        this.hitWriter = hitWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.buffer = new ArrayBlockingQueue<>(ingestProperties.getBufferCapacity());
+        this.batchSize = ingestProperties.getBatchSize();
+        this.flushIntervalNanos = ingestProperties.getFlushInterval().toNanos();
+        this.droppedHits = Counter.builder("stats.ingest.dropped")
+                .description("Hits rejected by a full buffer or lost in a failed flush")
+                .register(meterRegistry);
+        this.flushLatency = Timer.builder("stats.ingest.flush.latency")
+                .description("Time spent committing one group of buffered hits")
+                .register(meterRegistry);
+        Gauge.builder("stats.ingest.buffer.depth", buffer, BlockingQueue::size)
+                .description("Hits waiting in the async buffer")
+                .register(meterRegistry);
+        this.writer = new Thread(this::drainLoop, "stats-hit-writer");
+    }
+
+    @PostConstruct
+    public void start() {
+        writer.start();
+    }
+
+    /**
+     * Stops the writer loop and waits until the remaining buffered hits are flushed.
+     */
+    @PreDestroy
+    public void stop() throws InterruptedException {
+        running = false;
+        writer.join(SHUTDOWN_TIMEOUT_MS);
+    }
+
+    @Override
+    public void ingest(EndpointHit endpointHit) {
+        if (!buffer.offer(endpointHit)) {
+            droppedHits.increment();
+            log.warn("Hit buffer is full, dropping hit for uri {}", endpointHit.getUri());
+        }
+    }
+
+    /**
+     * Buffering never waits: a full buffer drops the hit.
+     */
+    @Override
+    public boolean isBlocking() {
+        return false;
+    }
+
+    private void drainLoop() {
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        long deadline = System.nanoTime() + flushIntervalNanos;
+
+        while (running || !buffer.isEmpty()) {
+            try {
+                long wait = deadline - System.nanoTime();
+                EndpointHit hit = wait > 0 ? buffer.poll(wait, TimeUnit.NANOSECONDS) : null;
+                if (hit != null) {
+                    batch.add(hit);
+                    buffer.drainTo(batch, batchSize - batch.size());
+                }
+                if (batch.size() >= batchSize || System.nanoTime() >= deadline) {
+                    flush(batch);
+                    deadline = System.nanoTime() + flushIntervalNanos;
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+        buffer.drainTo(batch);
+        for (int from = 0; from < batch.size(); from += batchSize) {
+            write(batch.subList(from, Math.min(from + batchSize, batch.size())));
+        }
+    }
+
+    private void flush(List<EndpointHit> batch) {
+        write(batch);
+        batch.clear();
+    }
+
+    /**
+     * Commits a group of hits. When the database rejects the group, the halves are written separately,
+     * down to single hits, so only the rejected hits are dropped. Other failures, such as a lost
+     * connection, drop the whole group.
+     */
+    private void write(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        try {
+            flushLatency.record(() -> transactionTemplate.executeWithoutResult(status -> hitWriter.write(hits)));
+            log.debug("Flushed {} buffered hits", hits.size());
+        } catch (DataIntegrityViolationException | IllegalArgumentException e) {
+            if (hits.size() == 1) {
+                droppedHits.increment();
+                log.error("Database rejected buffered hit {}, dropping it", hits.get(0), e);
+                return;
+            }
+            int half = hits.size() / 2;
+            write(hits.subList(0, half));
+            write(hits.subList(half, hits.size()));
+        } catch (RuntimeException e) {
+            droppedHits.increment(hits.size());
+            log.error("Failed to flush {} buffered hits", hits.size(), e);
+        }
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.statsserver.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+
+import java.util.List;
+
+/**
+ * Persists every hit in its own transaction before the request completes.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "sync", matchIfMissing = true)
+public class DirectHitIngestor implements HitIngestor {
+    private final HitWriter hitWriter;
+
+    @Override
+    @Transactional
+    public void ingest(EndpointHit endpointHit) {
+        hitWriter.write(List.of(endpointHit));
+    }
+}
@@ -0,0 +1,14 @@
+package ru.practicum.statsserver.stats.service;
+
+import ru.practicum.statsserver.stats.model.EndpointHit;
+
+public interface HitIngestor {
+    void ingest(EndpointHit endpointHit);
+
+    /**
+     * Whether {@link #ingest} waits for I/O, so that it must not be called on an event loop thread.
+     */
+    default boolean isBlocking() {
+        return true;
+    }
+}
@@ -0,0 +1,11 @@
+package ru.practicum.statsserver.stats.service;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.LocalDateTime;
+
+public interface HitTransferService {
+    long importHits(InputStream csv);
+
+    long exportHits(LocalDateTime start, LocalDateTime end, OutputStream out);
+}
@@ -0,0 +1,128 @@
+package ru.practicum.statsserver.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.statsserver.stats.config.HotWindowProperties;
+import ru.practicum.statsserver.stats.config.IngestProperties;
+import ru.practicum.statsserver.stats.config.TopHitsProperties;
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.RollupKey;
+import ru.practicum.statsserver.stats.model.StatsTier;
+import ru.practicum.statsserver.stats.repository.HitCopyRepository;
+import ru.practicum.statsserver.stats.repository.SketchRepository;
+import ru.practicum.statsserver.stats.util.HyperLogLog;
+import ru.practicum.statsserver.stats.util.IpAddressUtil;
+
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+@Service
+@Slf4j
+@RequiredArgsConstructor
+public class HitTransferServiceImpl implements HitTransferService {
+    private static final int SKETCH_CHUNK_SIZE = 1000;
+
+    private final HitCopyRepository hitCopyRepository;
+    private final SketchRepository sketchRepository;
+    private final HitWriter hitWriter;
+    private final StatsQueryCache statsQueryCache;
+    private final IngestProperties ingestProperties;
+    private final HotWindowProperties hotWindowProperties;
+    private final TopHitsProperties topHitsProperties;
+
+    /**
+     * Imports hits from CSV with a header line and the columns app, uri, ip and timestamp in one transaction.
+     * Rows are loaded with {@code COPY}; dictionaries, raw hits and rollups are then filled by set-based
+     * statements, and only the unique-visitor sketches are built in memory, a bounded number at a time.
+     * The result cache is cleared, as imported hits may fall into any cached range.
+     *
+     * @param csv CSV stream.
+     * @return number of imported hits.
+     */
+    @Override
+    @Transactional
+    public long importHits(InputStream csv) {
+        long copied;
+        try {
+            copied = hitCopyRepository.copyIn(csv);
+        } catch (DataAccessException e) {
+            throw new BadRequestException("Invalid CSV: " + e.getMostSpecificCause().getMessage());
+        }
+        hitCopyRepository.insertNames();
+        hitCopyRepository.insertHits();
+        for (StatsTier tier : StatsTier.values()) {
+            if (tier.isRollup() && !tier.isCompacted()) {
+                hitCopyRepository.incrementRollup(tier);
+            }
+        }
+        mergeSketches();
+        trackRecentHits();
+        statsQueryCache.clear();
+        log.info("Imported {} hits", copied);
+
+        return copied;
+    }
+
+    /**
+     * Exports hits as CSV in the format accepted by {@link #importHits}.
+     *
+     * @param start Start date and time of the period (inclusive).
+     * @param end   End date and time of the period (inclusive).
+     * @param out   Stream receiving the CSV.
+     * @return number of exported hits.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public long exportHits(LocalDateTime start, LocalDateTime end, OutputStream out) {
+        long exported = hitCopyRepository.copyOut(start, end, out);
+        log.info("Exported {} hits", exported);
+
+        return exported;
+    }
+
+    private void mergeSketches() {
+        Map<RollupKey, HyperLogLog> sketches = new TreeMap<>(RollupKey.LOCK_ORDER);
+        hitCopyRepository.forEachDistinctIp(UniqueSketchService.SKETCH_TIER, (appId, uriId, bucket, ip) -> {
+            RollupKey key = new RollupKey(appId, uriId, bucket);
+            if (sketches.size() >= SKETCH_CHUNK_SIZE && !sketches.containsKey(key)) {
+                sketchRepository.merge(UniqueSketchService.SKETCH_TIER, sketches);
+                sketches.clear();
+            }
+            sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(IpAddressUtil.toBytes(ip));
+        });
+        sketchRepository.merge(UniqueSketchService.SKETCH_TIER, sketches);
+    }
+
+    /**
+     * Passes imported hits that may fall into the in-memory windows to the top hits summary and hot window.
+     * Live subscribers are skipped, as these hits are backfilled history rather than new traffic.
+     */
+    private void trackRecentHits() {
+        Duration range = max(hotWindowProperties.getSize(), topHitsProperties.getWindow()).plusHours(1);
+        LocalDateTime now = LocalDateTime.now();
+        int batchSize = ingestProperties.getBatchSize();
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        hitCopyRepository.forEachHit(now.minus(range), now.plus(range), hit -> {
+            batch.add(hit);
+            if (batch.size() == batchSize) {
+                hitWriter.trackImported(batch);
+                batch.clear();
+            }
+        });
+        hitWriter.trackImported(batch);
+    }
+
+    private static Duration max(Duration a, Duration b) {
+        return a.compareTo(b) >= 0 ? a : b;
+    }
+}
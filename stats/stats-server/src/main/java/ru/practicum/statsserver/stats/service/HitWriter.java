@@ -0,0 +1,92 @@
+package ru.practicum.statsserver.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+import ru.practicum.statsserver.stats.config.IngestProperties;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.RollupKey;
+import ru.practicum.statsserver.stats.model.StatsTier;
+import ru.practicum.statsserver.stats.repository.HitBatchRepository;
+import ru.practicum.statsserver.stats.repository.RollupRepository;
+
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Writes hits to the raw table and keeps the rollup counters in step within the same transaction.
+ * Unique-visitor sketches are collected by {@link PendingSketches} after commit and merged periodically.
+ * Counters are not deferred the same way: an increment is not idempotent, so a lost or repeated flush
+ * would leave the rollups permanently off from the raw hits. Instead the counter upserts are the last
+ * statements of the transaction, so their row locks are held only until commit, and the async and
+ * WAL ingest modes pre-aggregate a whole batch into one upsert per row.
+ * The in-memory top hits summary, hot window and result cache are updated after commit.
+ */
+@Component
+@RequiredArgsConstructor
+public class HitWriter {
+    private final HitBatchRepository hitBatchRepository;
+    private final RollupRepository rollupRepository;
+    private final PendingSketches pendingSketches;
+    private final StatsDictionary statsDictionary;
+    private final TopHitsTracker topHitsTracker;
+    private final HotWindow hotWindow;
+    private final StatsQueryCache statsQueryCache;
+    private final LiveStatsBroadcaster liveStatsBroadcaster;
+    private final IngestProperties ingestProperties;
+
+    /**
+     * Persists a group of hits. App and URI names are replaced by dictionary ids first.
+     * Counters are pre-aggregated per bucket, so each rollup table receives one upsert
+     * per distinct (app, uri, bucket) in the group. The upserts run last, after anything else
+     * that may touch the database, to keep the counter rows locked for as short as possible.
+     *
+     * @param hits hits to persist.
+     */
+    @Transactional(propagation = Propagation.MANDATORY)
+    public void write(List<EndpointHit> hits) {
+        if (hits.isEmpty()) {
+            return;
+        }
+        statsDictionary.resolveIds(hits);
+        hitBatchRepository.saveAll(hits, ingestProperties.getBatchSize());
+        pendingSketches.record(hits);
+        for (StatsTier tier : StatsTier.values()) {
+            if (tier.isRollup() && !tier.isCompacted()) {
+                rollupRepository.increment(tier, countByBucket(hits, tier));
+            }
+        }
+        track(hits);
+    }
+
+    /**
+     * Passes imported hits to the top hits summary and hot window once the current transaction commits.
+     * Used for hits stored by bulk loading, which bypasses {@link #write}. Imported hits are history,
+     * not traffic happening now, so live subscribers are not told about them; the importer clears
+     * the result cache itself.
+     *
+     * @param hits hits with app and URI names and dictionary ids.
+     */
+    public void trackImported(List<EndpointHit> hits) {
+        topHitsTracker.record(hits);
+        hotWindow.record(hits);
+    }
+
+    private void track(List<EndpointHit> hits) {
+        trackImported(hits);
+        statsQueryCache.invalidate(hits);
+        liveStatsBroadcaster.record(hits);
+    }
+
+    private static Map<RollupKey, Long> countByBucket(List<EndpointHit> hits, StatsTier tier) {
+        Map<RollupKey, Long> counts = new TreeMap<>(RollupKey.LOCK_ORDER);
+        for (EndpointHit hit : hits) {
+            RollupKey key = new RollupKey(hit.getAppId(), hit.getUriId(),
+                    hit.getTimestamp().truncatedTo(tier.getUnit()));
+            counts.merge(key, 1L, Long::sum);
+        }
+        return counts;
+    }
+}
@@ -0,0 +1,255 @@
+package ru.practicum.statsserver.stats.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.statsserver.stats.config.HotWindowProperties;
+import ru.practicum.statsserver.stats.config.WalProperties;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.HitCount;
+import ru.practicum.statsserver.stats.model.QuerySegment;
+import ru.practicum.statsserver.stats.model.StatsTier;
+import ru.practicum.statsserver.stats.repository.RollupRepository;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ConcurrentNavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.concurrent.atomic.LongAccumulator;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * In-memory copy of the newest per-minute counters, so the tail of a query ending now is answered
+ * without reading the most recent, least cached rows. Counters are {@link LongAdder}s in concurrent
+ * maps, so writers never block each other or readers. The window is seeded from the minute rollups
+ * on startup and updated with hits after they are committed.
+ * Only hits committed on this node reach the window, so it is meant for a single stats server: with
+ * several instances sharing a database, each would undercount the tail by the hits of the others.
+ * Startup fails when the window is enabled together with {@code stats.wal.node-id}, which only
+ * deployments with several instances set.
+ */
+@Slf4j
+@Component
+public class HotWindow {
+    private static final StatsTier TIER = StatsTier.MINUTE;
+    private static final ChronoUnit UNIT = TIER.getUnit();
+
+    /**
+     * Rough heap footprint of one counter: map node, boxed key and adder.
+     */
+    private static final long BYTES_PER_COUNTER = 96;
+
+    private final ConcurrentNavigableMap<LocalDateTime, Minute> minutes = new ConcurrentSkipListMap<>();
+    private final boolean enabled;
+    private final Duration size;
+    private final RollupRepository rollupRepository;
+
+    public HotWindow(HotWindowProperties hotWindowProperties,
+                     WalProperties walProperties,
+                     RollupRepository rollupRepository,
+                     MeterRegistry meterRegistry) {
+        if (hotWindowProperties.isEnabled() && walProperties.getNodeId() != null) {
+            throw new IllegalStateException("The hot window only counts hits of this node and cannot be used "
+                    + "with several stats server instances: set stats.hot-window.enabled=false "
+                    + "when stats.wal.node-id is set");
+        }
+        this.enabled = hotWindowProperties.isEnabled();
+        this.size = hotWindowProperties.getSize();
+        this.rollupRepository = rollupRepository;
+        Gauge.builder("stats.hot-window.size", size, Duration::toSeconds)
+                .description("Length of the in-memory window of recent counters")
+                .baseUnit("seconds")
+                .register(meterRegistry);
+        Gauge.builder("stats.hot-window.counters", this, HotWindow::counterCount)
+                .description("Counters held in the in-memory window")
+                .register(meterRegistry);
+        Gauge.builder("stats.hot-window.memory", this, window -> window.counterCount() * BYTES_PER_COUNTER)
+                .description("Estimated heap used by the in-memory window")
+                .baseUnit("bytes")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void seed() {
+        if (!enabled) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        rollupRepository.forEachCounter(TIER, windowStart(now), horizon(now), (appId, uriId, bucket, hits) ->
+                add(bucket, HitCount.key(appId, uriId), hits, bucket.plus(1, UNIT)));
+        log.info("Seeded hot window with {} counters", counterCount());
+    }
+
+    /**
+     * Counts hits once the current transaction commits, so rolled back hits are never counted.
+     * Hits are aggregated right away, as callers may reuse the list after this call.
+     *
+     * @param hits hits with resolved dictionary ids.
+     */
+    public void record(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        Map<LocalDateTime, Map<Long, Long>> counts = new HashMap<>();
+        Map<LocalDateTime, LocalDateTime> latest = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            LocalDateTime minute = hit.getTimestamp().truncatedTo(UNIT);
+            counts.computeIfAbsent(minute, m -> new HashMap<>())
+                    .merge(HitCount.key(hit.getAppId(), hit.getUriId()), 1L, Long::sum);
+            latest.merge(minute, hit.getTimestamp(), HotWindow::max);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addAll(counts, latest);
+                }
+            });
+        } else {
+            addAll(counts, latest);
+        }
+    }
+
+    /**
+     * Finds the part of {@code [from, to)} that can be answered from memory. It is always a tail of the
+     * range starting at a whole minute. The last partial minute of the range is included only when
+     * none of its hits are timestamped after the end of the range. Whatever lies outside the returned
+     * segment has to be read from the database.
+     *
+     * @param from start of the range, inclusive.
+     * @param to   end of the range, exclusive.
+     * @return segment to pass to {@link #findStats}, or empty when no whole minute of the range is in memory.
+     */
+    public Optional<QuerySegment> cover(LocalDateTime from, LocalDateTime to) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime tailFrom = max(ceil(from), windowStart(now));
+        LocalDateTime tailTo = min(hasNoHitsFrom(to) ? ceil(to) : to.truncatedTo(UNIT), horizon(now));
+        if (!tailFrom.isBefore(tailTo)) {
+            return Optional.empty();
+        }
+        return Optional.of(new QuerySegment(TIER, tailFrom, tailTo));
+    }
+
+    /**
+     * Sums the in-memory counters of a segment returned by {@link #cover}.
+     *
+     * @param segment segment to read.
+     * @param uriIds  URI ids to filter by, or null for all URIs.
+     * @return hit counts per app and URI.
+     */
+    public List<HitCount> findStats(QuerySegment segment, List<Integer> uriIds) {
+        Set<Integer> uriFilter = uriIds != null ? new HashSet<>(uriIds) : null;
+        Map<Long, Long> counts = new HashMap<>();
+        for (Minute minute : minutes.subMap(segment.getFrom(), true, segment.getTo(), false).values()) {
+            minute.counters.forEach((key, adder) -> {
+                if (uriFilter == null || uriFilter.contains(HitCount.uriId(key))) {
+                    counts.merge(key, adder.sum(), Long::sum);
+                }
+            });
+        }
+        List<HitCount> result = new ArrayList<>(counts.size());
+        counts.forEach((key, hits) -> result.add(new HitCount(HitCount.appId(key), HitCount.uriId(key), hits)));
+        return result;
+    }
+
+    /**
+     * Drops minutes that have left the window. One extra minute is kept, so a query that has just
+     * been covered can still read the minute the window has moved past.
+     */
+    @Scheduled(fixedDelayString = "${stats.hot-window.evict-interval:PT1M}")
+    public void evictExpired() {
+        minutes.headMap(windowStart(LocalDateTime.now()).minus(1, UNIT)).clear();
+    }
+
+    private void addAll(Map<LocalDateTime, Map<Long, Long>> counts, Map<LocalDateTime, LocalDateTime> latest) {
+        counts.forEach((minute, minuteCounts) -> minuteCounts.forEach((key, hits) ->
+                add(minute, key, hits, latest.get(minute))));
+    }
+
+    /**
+     * Adds hits to a counter.
+     *
+     * @param latest timestamp no earlier than any of the hits.
+     */
+    private void add(LocalDateTime minute, long key, long hits, LocalDateTime latest) {
+        LocalDateTime now = LocalDateTime.now();
+        if (minute.isBefore(windowStart(now)) || !minute.isBefore(horizon(now))) {
+            return;
+        }
+        Minute counters = minutes.computeIfAbsent(minute, m -> new Minute());
+        counters.latest.accumulate(toSeconds(latest));
+        counters.counters.computeIfAbsent(key, k -> new LongAdder()).add(hits);
+    }
+
+    /**
+     * Checks that the minute containing {@code to} holds no hits timestamped at or after it.
+     */
+    private boolean hasNoHitsFrom(LocalDateTime to) {
+        Minute minute = minutes.get(to.truncatedTo(UNIT));
+        return minute == null || minute.latest.get() < toSeconds(to);
+    }
+
+    private long counterCount() {
+        long count = 0;
+        for (Minute minute : minutes.values()) {
+            count += minute.counters.size();
+        }
+        return count;
+    }
+
+    private static long toSeconds(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private LocalDateTime windowStart(LocalDateTime now) {
+        return now.truncatedTo(UNIT).minus(size);
+    }
+
+    /**
+     * Bounds how far into the future hit timestamps are kept, so bogus timestamps cannot grow the window.
+     */
+    private LocalDateTime horizon(LocalDateTime now) {
+        return now.truncatedTo(UNIT).plus(size);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time) {
+        LocalDateTime truncated = time.truncatedTo(UNIT);
+        return truncated.equals(time) ? time : truncated.plus(1, UNIT);
+    }
+
+    private static LocalDateTime max(LocalDateTime a, LocalDateTime b) {
+        return a.isAfter(b) ? a : b;
+    }
+
+    private static LocalDateTime min(LocalDateTime a, LocalDateTime b) {
+        return a.isBefore(b) ? a : b;
+    }
+
+    private static final class Minute {
+        private final ConcurrentMap<Long, LongAdder> counters = new ConcurrentHashMap<>();
+
+        /**
+         * Latest hit timestamp of the minute in epoch seconds.
+         */
+        private final LongAccumulator latest = new LongAccumulator(Math::max, Long.MIN_VALUE);
+    }
+}
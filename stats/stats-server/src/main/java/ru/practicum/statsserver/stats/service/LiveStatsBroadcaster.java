@@ -0,0 +1,275 @@
+package ru.practicum.statsserver.stats.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.web.servlet.mvc.method.annotation.SseEmitter;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.config.LiveStatsProperties;
+import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
+import ru.practicum.statsserver.stats.exception.exception.OverloadedException;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Pushes new hits of subscribed URIs to server-sent event streams. Committed hits are only added to
+ * a counter per URI and app; a flush every {@code stats.live.interval} sends what has accumulated since
+ * the previous flush, so a URI gets at most one event per flush interval however many hits it receives.
+ * Hits of URIs nobody subscribed to are ignored.
+ * The flush runs on its own thread and only queues events; each subscriber's events are written by a
+ * virtual thread, so a slow client never delays the flush or the application's scheduled tasks.
+ * A subscriber with {@code maxQueuedEvents} events still waiting is disconnected.
+ */
+@Slf4j
+@Component
+public class LiveStatsBroadcaster {
+    private static final String EVENT_NAME = "hits";
+
+    private final ConcurrentMap<String, Set<Subscriber>> subscribers = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, ConcurrentMap<String, AtomicLong>> pending = new ConcurrentHashMap<>();
+    private final AtomicInteger subscriberCount = new AtomicInteger();
+    private final ScheduledExecutorService flusher = Executors.newSingleThreadScheduledExecutor(
+            runnable -> new Thread(runnable, "stats-live-flush"));
+    private final ExecutorService senders = Executors.newVirtualThreadPerTaskExecutor();
+    private final LiveStatsProperties liveStatsProperties;
+    private final Counter sentEvents;
+    private final Counter slowSubscribers;
+
+    public LiveStatsBroadcaster(LiveStatsProperties liveStatsProperties, MeterRegistry meterRegistry) {
+        this.liveStatsProperties = liveStatsProperties;
+        this.sentEvents = Counter.builder("stats.live.events")
+                .description("Events sent to live stream subscribers")
+                .register(meterRegistry);
+        this.slowSubscribers = Counter.builder("stats.live.slow-subscribers")
+                .description("Live stream subscribers disconnected for not keeping up with their events")
+                .register(meterRegistry);
+        Gauge.builder("stats.live.subscribers", subscriberCount, AtomicInteger::get)
+                .description("Open live stream connections")
+                .register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void start() {
+        long interval = liveStatsProperties.getInterval().toNanos();
+        flusher.scheduleWithFixedDelay(this::flush, interval, interval, TimeUnit.NANOSECONDS);
+    }
+
+    /**
+     * Stops flushing and abandons events not sent yet.
+     */
+    @PreDestroy
+    public void close() {
+        flusher.shutdownNow();
+        senders.shutdownNow();
+    }
+
+    /**
+     * Opens a stream of {@code hits} events for the given URIs. Each event carries the hits of one URI per
+     * app received since the previous event, as a JSON array of {@link ViewStatsDto}.
+     *
+     * @param uris URIs to follow.
+     * @return emitter to return from the controller.
+     */
+    public SseEmitter subscribe(List<String> uris) {
+        if (uris == null || uris.isEmpty()) {
+            throw new BadRequestException("At least one uri must be given");
+        }
+        if (subscriberCount.incrementAndGet() > liveStatsProperties.getMaxSubscribers()) {
+            subscriberCount.decrementAndGet();
+            throw new OverloadedException("Too many live stream subscribers, retry later",
+                    HttpStatus.SERVICE_UNAVAILABLE, Duration.ofSeconds(10));
+        }
+        SseEmitter emitter = new SseEmitter(liveStatsProperties.getTimeout().toMillis());
+        Subscriber subscriber = new Subscriber(emitter, new LinkedHashSet<>(uris),
+                liveStatsProperties.getMaxQueuedEvents());
+        emitter.onCompletion(() -> unsubscribe(subscriber));
+        emitter.onTimeout(() -> unsubscribe(subscriber));
+        emitter.onError(e -> unsubscribe(subscriber));
+        for (String uri : subscriber.uris) {
+            subscribers.compute(uri, (u, set) -> {
+                Set<Subscriber> followers = set != null ? set : ConcurrentHashMap.newKeySet();
+                followers.add(subscriber);
+                return followers;
+            });
+        }
+        log.debug("Subscribed to live hits of {}", subscriber.uris);
+        return emitter;
+    }
+
+    /**
+     * Counts hits of subscribed URIs once the current transaction commits.
+     * Hits are aggregated right away, as callers may reuse the list after this call.
+     *
+     * @param hits hits with app and URI names.
+     */
+    public void record(List<EndpointHit> hits) {
+        if (subscribers.isEmpty()) {
+            return;
+        }
+        Map<String, Map<String, Long>> counts = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            if (subscribers.containsKey(hit.getUri())) {
+                counts.computeIfAbsent(hit.getUri(), u -> new HashMap<>()).merge(hit.getApp(), 1L, Long::sum);
+            }
+        }
+        if (counts.isEmpty()) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addAll(counts);
+                }
+            });
+        } else {
+            addAll(counts);
+        }
+    }
+
+    /**
+     * Queues the hits accumulated since the previous flush, one event per URI, for every subscriber of the URI.
+     */
+    void flush() {
+        try {
+            pending.forEach((uri, appCounts) -> {
+                Set<Subscriber> followers = subscribers.get(uri);
+                if (followers == null) {
+                    pending.remove(uri);
+                    return;
+                }
+                List<ViewStatsDto> increments = new ArrayList<>();
+                appCounts.forEach((app, count) -> {
+                    long hits = count.getAndSet(0);
+                    if (hits > 0) {
+                        increments.add(new ViewStatsDto(app, uri, hits));
+                    }
+                });
+                if (increments.isEmpty()) {
+                    return;
+                }
+                for (Subscriber subscriber : followers) {
+                    subscriber.offer(increments);
+                }
+            });
+        } catch (RuntimeException e) {
+            log.warn("Failed to flush live hits", e);
+        }
+    }
+
+    private void addAll(Map<String, Map<String, Long>> counts) {
+        counts.forEach((uri, appCounts) -> appCounts.forEach((app, hits) ->
+                pending.computeIfAbsent(uri, u -> new ConcurrentHashMap<>())
+                        .computeIfAbsent(app, a -> new AtomicLong())
+                        .addAndGet(hits)));
+    }
+
+    /**
+     * Removes the subscriber from every URI it follows. The removal and the check for a URI
+     * left without subscribers happen in one step, so a concurrent subscription is never lost.
+     */
+    private void unsubscribe(Subscriber subscriber) {
+        if (!subscriber.closed.compareAndSet(false, true)) {
+            return;
+        }
+        for (String uri : subscriber.uris) {
+            subscribers.compute(uri, (u, set) -> {
+                if (set == null) {
+                    return null;
+                }
+                set.remove(subscriber);
+                return set.isEmpty() ? null : set;
+            });
+        }
+        subscriberCount.decrementAndGet();
+    }
+
+    /**
+     * Subscriber with its own queue of events. At most one sender task runs per subscriber at a time.
+     */
+    private final class Subscriber {
+        private final SseEmitter emitter;
+        private final Set<String> uris;
+        private final BlockingQueue<List<ViewStatsDto>> events;
+        private final AtomicBoolean sending = new AtomicBoolean();
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Subscriber(SseEmitter emitter, Set<String> uris, int maxQueuedEvents) {
+            this.emitter = emitter;
+            this.uris = uris;
+            this.events = new ArrayBlockingQueue<>(maxQueuedEvents);
+        }
+
+        /**
+         * Queues an event without waiting. Completing the emitter may wait for a send in progress,
+         * so a subscriber that fell behind is completed by a sender thread.
+         */
+        private void offer(List<ViewStatsDto> increments) {
+            if (closed.get()) {
+                return;
+            }
+            if (!events.offer(increments)) {
+                log.debug("Dropping live stream subscriber of {} that fell behind", uris);
+                slowSubscribers.increment();
+                unsubscribe(this);
+                senders.execute(emitter::complete);
+                return;
+            }
+            if (sending.compareAndSet(false, true)) {
+                senders.execute(this::drain);
+            }
+        }
+
+        private void drain() {
+            do {
+                List<ViewStatsDto> increments;
+                while ((increments = events.poll()) != null) {
+                    if (!send(increments)) {
+                        return;
+                    }
+                }
+                sending.set(false);
+            } while (!events.isEmpty() && sending.compareAndSet(false, true));
+        }
+
+        private boolean send(List<ViewStatsDto> increments) {
+            try {
+                emitter.send(SseEmitter.event().name(EVENT_NAME).data(increments, MediaType.APPLICATION_JSON));
+                sentEvents.increment();
+                return true;
+            } catch (IOException | IllegalStateException e) {
+                log.debug("Dropping live stream subscriber: {}", e.getMessage());
+                unsubscribe(this);
+                emitter.completeWithError(e);
+                return false;
+            }
+        }
+    }
+}
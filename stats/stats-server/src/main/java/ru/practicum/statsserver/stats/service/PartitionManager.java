@@ -0,0 +1,194 @@
+package ru.practicum.statsserver.stats.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsserver.stats.config.PartitionInterval;
+import ru.practicum.statsserver.stats.config.PartitionProperties;
+import ru.practicum.statsserver.stats.model.StatsTier;
+import ru.practicum.statsserver.stats.repository.CompactionRepository;
+import ru.practicum.statsserver.stats.repository.PartitionRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeParseException;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.function.IntSupplier;
+
+/**
+ * Maintains range partitions of the raw stats table: keeps partitions for the current and
+ * upcoming periods created in advance and removes partitions that fell out of the retention window.
+ * Hits that fall outside every partition land in the default partition. Every check creates the
+ * partitions of the periods found there, up to the create-ahead horizon, and moves their hits over,
+ * so late and early hits end up partitioned and pruned like any other. Hits further in the future
+ * wait in the default partition until their period is created ahead.
+ * The retention also applies to the default partition and to the counters and sketches.
+ */
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class PartitionManager {
+    private static final String PARTITION_PREFIX = "stats_p";
+    private static final List<String> ROLLUP_TABLES = List.of(StatsTier.MINUTE.getTable(),
+            StatsTier.HOUR.getTable(), "stats_ip_sketch", StatsTier.DAY.getTable());
+
+    private final PartitionRepository partitionRepository;
+    private final CompactionRepository compactionRepository;
+    private final StatsQueryCache statsQueryCache;
+    private final PartitionProperties partitionProperties;
+    private final TransactionTemplate transactionTemplate;
+
+    @PostConstruct
+    public void init() {
+        maintainPartitions();
+    }
+
+    /**
+     * Creates missing partitions and applies the retention. A partition that cannot be created fails
+     * the whole check, so the application does not start, or the scheduler reports the error.
+     */
+    @Scheduled(fixedDelayString = "${stats.partition.check-interval:PT1H}",
+            initialDelayString = "${stats.partition.check-interval:PT1H}")
+    public void maintainPartitions() {
+        PartitionInterval interval = partitionProperties.getInterval();
+        LocalDateTime now = LocalDateTime.now();
+        LocalDate current = interval.startOf(now.toLocalDate());
+        LocalDate horizon = current.plus(partitionProperties.getCreateAhead() + 1, interval.getUnit());
+        LocalDateTime cutoff = partitionProperties.getRetention() != null
+                ? now.minus(partitionProperties.getRetention()) : null;
+        LocalDate retainedFrom = cutoff != null ? interval.startOf(cutoff.toLocalDate()) : null;
+
+        Set<LocalDate> periods = new TreeSet<>(partitionRepository.findDefaultPeriods(interval, horizon));
+        for (LocalDate start = current; start.isBefore(horizon); start = start.plus(1, interval.getUnit())) {
+            periods.add(start);
+        }
+        Set<String> partitions = new HashSet<>(partitionRepository.findPartitionNames());
+        for (LocalDate from : periods) {
+            if ((retainedFrom == null || !from.isBefore(retainedFrom))
+                    && !partitions.contains(partitionName(interval, from))) {
+                createPartition(interval, from);
+            }
+        }
+
+        if (retainedFrom != null) {
+            removeExpiredPartitions(interval, cutoff);
+            removeExpiredHits(interval, retainedFrom);
+        }
+    }
+
+    /**
+     * Creates the partition as a standalone table, moves its hits out of the default partition and attaches it,
+     * all in one transaction with the default partition locked. Postgres refuses to create a partition
+     * while the default partition holds hits of its range.
+     */
+    private void createPartition(PartitionInterval interval, LocalDate from) {
+        String name = partitionName(interval, from);
+        LocalDate to = from.plus(1, interval.getUnit());
+        try {
+            int moved = transactionTemplate.execute(status -> {
+                partitionRepository.lockDefault();
+                partitionRepository.createTable(name);
+                int count = partitionRepository.moveFromDefault(name, from, to);
+                partitionRepository.attach(name, from, to);
+                return count;
+            });
+            if (moved > 0) {
+                log.info("Created partition {} and moved {} hits to it from the default partition", name, moved);
+            }
+        } catch (DataAccessException e) {
+            throw new IllegalStateException("Failed to create partition " + name, e);
+        }
+    }
+
+    private void removeExpiredPartitions(PartitionInterval interval, LocalDateTime cutoff) {
+        List<String> partitions = partitionRepository.findPartitionNames();
+        for (String name : partitions) {
+            LocalDate from = parseStart(interval, name);
+            if (from == null || from.plus(1, interval.getUnit()).atStartOfDay().isAfter(cutoff)) {
+                continue;
+            }
+            if (partitionProperties.isDetachOnly()) {
+                partitionRepository.detach(name);
+                log.info("Detached expired partition {}", name);
+            } else {
+                partitionRepository.drop(name);
+                log.info("Dropped expired partition {}", name);
+            }
+        }
+    }
+
+    /**
+     * Removes expired hits of the default partition, counters and sketches in bounded batches.
+     * With {@code detachOnly} the expired hits of the default partition are moved to the standalone
+     * table of their period instead, next to the detached partitions.
+     *
+     * @param retainedFrom first day of the oldest period that is kept.
+     */
+    private void removeExpiredHits(PartitionInterval interval, LocalDate retainedFrom) {
+        long hits = 0;
+        if (partitionProperties.isDetachOnly()) {
+            for (LocalDate from : partitionRepository.findDefaultPeriods(interval, retainedFrom)) {
+                String name = partitionName(interval, from);
+                hits += transactionTemplate.execute(status -> {
+                    partitionRepository.lockDefault();
+                    partitionRepository.createTable(name);
+                    return partitionRepository.moveFromDefault(name, from, from.plus(1, interval.getUnit()));
+                });
+            }
+        } else {
+            hits = deleteInBatches(() -> partitionRepository.deleteDefault(retainedFrom,
+                    partitionProperties.getDeleteBatchSize()));
+        }
+        long rollups = 0;
+        for (String table : ROLLUP_TABLES) {
+            rollups += deleteInBatches(() -> compactionRepository.deleteBuckets(table, retainedFrom.atStartOfDay(),
+                    partitionProperties.getDeleteBatchSize()));
+        }
+        if (hits > 0 || rollups > 0) {
+            statsQueryCache.clear();
+            log.info("Removed {} expired hits from the default partition and {} expired counters and sketches",
+                    hits, rollups);
+        }
+    }
+
+    /**
+     * Repeats a bounded delete until nothing is left.
+     *
+     * @return total number of deleted rows.
+     */
+    private long deleteInBatches(IntSupplier delete) {
+        long total = 0;
+        int deleted;
+        do {
+            deleted = delete.getAsInt();
+            total += deleted;
+        } while (deleted == partitionProperties.getDeleteBatchSize());
+        return total;
+    }
+
+    private static String partitionName(PartitionInterval interval, LocalDate from) {
+        return PARTITION_PREFIX + from.format(interval.getSuffixFormatter());
+    }
+
+    private static LocalDate parseStart(PartitionInterval interval, String name) {
+        if (!name.startsWith(PARTITION_PREFIX)) {
+            return null;
+        }
+        String suffix = name.substring(PARTITION_PREFIX.length());
+        try {
+            if (interval == PartitionInterval.MONTH) {
+                return LocalDate.parse(suffix + "01", PartitionInterval.DAY.getSuffixFormatter());
+            }
+            return LocalDate.parse(suffix, interval.getSuffixFormatter());
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
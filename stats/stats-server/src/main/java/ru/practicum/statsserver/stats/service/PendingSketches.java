@@ -0,0 +1,194 @@
+package ru.practicum.statsserver.stats.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsserver.stats.config.IngestProperties;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.RollupKey;
+import ru.practicum.statsserver.stats.repository.SketchRepository;
+import ru.practicum.statsserver.stats.util.HyperLogLog;
+import ru.practicum.statsserver.stats.util.IpAddressUtil;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Collects unique-visitor sketches of committed hits in memory and merges them into the stored hourly
+ * sketches every {@code stats.ingest.sketch-flush-interval}, so writing hits never locks a sketch row.
+ * Merging a sketch again does not change the result, so the sketches of a failed flush are simply
+ * kept for the next one. Queries add the pending sketches to the stored ones.
+ * Each pending sketch takes about 4 KB, so at most {@code stats.ingest.max-pending-sketches} are kept;
+ * beyond that, hits merge their sketches while they are written, as if nothing were buffered.
+ * Pending sketches are flushed on shutdown. If the process dies, they are rebuilt on startup from the raw
+ * hits timestamped within {@code stats.ingest.sketch-recovery-window}. Hits committed just before a crash
+ * with older timestamps, such as late or imported hits, stay missing from the sketches.
+ */
+@Slf4j
+@Component
+public class PendingSketches {
+    private static final ChronoUnit UNIT = UniqueSketchService.SKETCH_TIER.getUnit();
+
+    private final SketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxPending;
+    private final Duration recoveryWindow;
+    private final Counter writeMerges;
+    private Map<RollupKey, HyperLogLog> pending = new TreeMap<>(RollupKey.LOCK_ORDER);
+    private Map<RollupKey, HyperLogLog> flushing = Map.of();
+
+    public PendingSketches(SketchRepository sketchRepository,
+                           TransactionTemplate transactionTemplate,
+                           IngestProperties ingestProperties,
+                           MeterRegistry meterRegistry) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.maxPending = ingestProperties.getMaxPendingSketches();
+        this.recoveryWindow = ingestProperties.getSketchRecoveryWindow();
+        this.writeMerges = Counter.builder("stats.sketches.write-merges")
+                .description("Hit writes that merged their sketches directly because too many were pending")
+                .register(meterRegistry);
+        Gauge.builder("stats.sketches.pending", this, PendingSketches::size)
+                .description("Hourly unique-visitor sketches not yet merged into the database")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Rebuilds the sketches of hits timestamped within {@code stats.ingest.sketch-recovery-window}, in case
+     * the last shutdown was a crash that lost pending sketches. Hits whose sketches were merged before
+     * change nothing. The rebuilt sketches are merged in groups of at most {@code max-pending-sketches}.
+     */
+    @PostConstruct
+    public void recover() {
+        if (recoveryWindow.isZero()) {
+            return;
+        }
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime from = now.minus(recoveryWindow);
+        Map<RollupKey, HyperLogLog> sketches = new TreeMap<>(RollupKey.LOCK_ORDER);
+        for (LocalDateTime bucket = from.truncatedTo(UNIT); !bucket.isAfter(now); bucket = bucket.plus(1, UNIT)) {
+            LocalDateTime key = bucket;
+            sketchRepository.forEachDistinctIp(bucket.isBefore(from) ? from : bucket, bucket.plus(1, UNIT), null,
+                    (appId, uriId, ip) -> {
+                        sketches.computeIfAbsent(new RollupKey(appId, uriId, key), k -> new HyperLogLog())
+                                .add(IpAddressUtil.toBytes(ip));
+                        if (sketches.size() >= maxPending) {
+                            mergeNow(sketches);
+                        }
+                    });
+            mergeNow(sketches);
+        }
+        log.info("Rebuilt unique-visitor sketches of hits since {}", from);
+    }
+
+    /**
+     * Adds hits to the pending sketches once the current transaction commits. When too many sketches are
+     * pending, they are merged into the database right away, in the current transaction.
+     *
+     * @param hits hits with resolved dictionary ids.
+     */
+    public void record(List<EndpointHit> hits) {
+        Map<RollupKey, HyperLogLog> sketches = new TreeMap<>(RollupKey.LOCK_ORDER);
+        for (EndpointHit hit : hits) {
+            RollupKey key = new RollupKey(hit.getAppId(), hit.getUriId(), hit.getTimestamp().truncatedTo(UNIT));
+            sketches.computeIfAbsent(key, k -> new HyperLogLog()).add(IpAddressUtil.toBytes(hit.getIp()));
+        }
+        if (size() >= maxPending) {
+            writeMerges.increment();
+            mergeNow(sketches);
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    addAll(sketches);
+                }
+            });
+        } else {
+            addAll(sketches);
+        }
+    }
+
+    /**
+     * Passes the pending sketches whose bucket starts within {@code [from, to)} to the handler,
+     * including the ones being merged into the database right now.
+     *
+     * @param from    start of the range, inclusive.
+     * @param to      end of the range, exclusive.
+     * @param uriIds  URI ids to filter by, or null for all URIs.
+     * @param handler receives app id, URI id and sketch for each pending bucket; must not keep the sketch.
+     */
+    public synchronized void forEachSketch(LocalDateTime from, LocalDateTime to, List<Integer> uriIds,
+                                           SketchRepository.SketchHandler handler) {
+        for (Map<RollupKey, HyperLogLog> sketches : List.of(flushing, pending)) {
+            sketches.forEach((key, sketch) -> {
+                if (!key.getBucket().isBefore(from) && key.getBucket().isBefore(to)
+                        && (uriIds == null || uriIds.contains(key.getUriId()))) {
+                    handler.accept(key.getAppId(), key.getUriId(), sketch);
+                }
+            });
+        }
+    }
+
+    /**
+     * Merges the pending sketches into the database in one transaction.
+     */
+    @Scheduled(fixedDelayString = "${stats.ingest.sketch-flush-interval:PT5S}")
+    public void flush() {
+        Map<RollupKey, HyperLogLog> sketches;
+        synchronized (this) {
+            if (pending.isEmpty()) {
+                return;
+            }
+            sketches = pending;
+            flushing = sketches;
+            pending = new TreeMap<>(RollupKey.LOCK_ORDER);
+        }
+        try {
+            transactionTemplate.executeWithoutResult(status ->
+                    sketchRepository.merge(UniqueSketchService.SKETCH_TIER, sketches));
+        } catch (RuntimeException e) {
+            log.warn("Failed to merge {} pending sketches, will retry: {}", sketches.size(), e.getMessage());
+            addAll(sketches);
+        } finally {
+            synchronized (this) {
+                flushing = Map.of();
+            }
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+    }
+
+    private void mergeNow(Map<RollupKey, HyperLogLog> sketches) {
+        transactionTemplate.executeWithoutResult(status ->
+                sketchRepository.merge(UniqueSketchService.SKETCH_TIER, sketches));
+        sketches.clear();
+    }
+
+    private synchronized void addAll(Map<RollupKey, HyperLogLog> sketches) {
+        sketches.forEach((key, sketch) -> pending.merge(key, sketch, (a, b) -> {
+            a.merge(b);
+            return a;
+        }));
+    }
+
+    private synchronized int size() {
+        return pending.size() + flushing.size();
+    }
+}
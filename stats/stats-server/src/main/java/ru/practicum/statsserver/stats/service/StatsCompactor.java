@@ -0,0 +1,185 @@
+package ru.practicum.statsserver.stats.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsserver.stats.config.CompactionProperties;
+import ru.practicum.statsserver.stats.model.RollupKey;
+import ru.practicum.statsserver.stats.model.StatsTier;
+import ru.practicum.statsserver.stats.repository.CompactionRepository;
+import ru.practicum.statsserver.stats.repository.SketchRepository;
+import ru.practicum.statsserver.stats.util.HyperLogLog;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Map;
+import java.util.Optional;
+import java.util.TreeMap;
+
+/**
+ * Compacts old hits: every day older than {@code stats.compaction.age} is folded into one counter and
+ * one unique visitor sketch per app and URI in {@link StatsTier#DAY}, after which its raw hits and
+ * finer counters are deleted. Days are folded from the hour counters and sketches, one transaction
+ * per day, and the compaction boundary moves forward in the same transaction, so queries switch
+ * to the daily tier exactly when a day is folded. Raw hits and minute counters behind the boundary
+ * are no longer read and are deleted afterwards in bounded batches.
+ * Hits that arrive late for a compacted day are folded in on the next run.
+ */
+@Slf4j
+@Component
+public class StatsCompactor {
+    private static final ChronoUnit UNIT = StatsTier.DAY.getUnit();
+
+    private final CompactionRepository compactionRepository;
+    private final SketchRepository sketchRepository;
+    private final StatsQueryCache statsQueryCache;
+    private final TransactionTemplate transactionTemplate;
+    private final CompactionProperties compactionProperties;
+    private final Counter compactedDays;
+    private final Counter deletedHits;
+    private volatile LocalDateTime compactedBefore;
+
+    public StatsCompactor(CompactionRepository compactionRepository,
+                          SketchRepository sketchRepository,
+                          StatsQueryCache statsQueryCache,
+                          TransactionTemplate transactionTemplate,
+                          CompactionProperties compactionProperties,
+                          MeterRegistry meterRegistry) {
+        this.compactionRepository = compactionRepository;
+        this.sketchRepository = sketchRepository;
+        this.statsQueryCache = statsQueryCache;
+        this.transactionTemplate = transactionTemplate;
+        this.compactionProperties = compactionProperties;
+        this.compactedDays = Counter.builder("stats.compaction.days")
+                .description("Days folded into daily counters, including late hits folded into compacted days")
+                .register(meterRegistry);
+        this.deletedHits = Counter.builder("stats.compaction.deleted")
+                .description("Raw hits deleted after compaction")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Reloads the compaction boundary, which may have been moved by another instance.
+     */
+    @PostConstruct
+    public void refresh() {
+        compactedBefore = compactionRepository.findCompactedBefore().orElse(null);
+    }
+
+    /**
+     * Checks whether a point in time falls into a compacted day, which only the daily tier can answer.
+     * Another instance may have moved the boundary since it was loaded, though never past
+     * {@code stats.compaction.age} before now, so a time between the loaded boundary and that cutoff
+     * reloads the boundary first.
+     *
+     * @param time point in time to check.
+     * @return true when {@code time} is before the compaction boundary.
+     */
+    public boolean isCompacted(LocalDateTime time) {
+        if (isBeforeBoundary(time)) {
+            return true;
+        }
+        if (mayBeCompacted(time)) {
+            refresh();
+            return isBeforeBoundary(time);
+        }
+        return false;
+    }
+
+    /**
+     * @return start of the first day that is not compacted, or null when nothing is compacted.
+     */
+    public LocalDateTime getCompactedBefore() {
+        return compactedBefore;
+    }
+
+    @Scheduled(fixedDelayString = "${stats.compaction.check-interval:PT1H}",
+            initialDelayString = "${stats.compaction.check-interval:PT1H}")
+    public void compact() {
+        refresh();
+        if (compactionProperties.getAge() == null) {
+            return;
+        }
+        LocalDateTime cutoff = LocalDateTime.now().minus(compactionProperties.getAge()).truncatedTo(UNIT);
+        if (isBeforeBoundary(cutoff)) {
+            cutoff = compactedBefore;
+        }
+        int days = 0;
+        Optional<LocalDateTime> hour;
+        while ((hour = compactionRepository.findOldestHour(cutoff)).isPresent()) {
+            LocalDateTime day = hour.get().truncatedTo(UNIT);
+            transactionTemplate.executeWithoutResult(status -> fold(day));
+            refresh();
+            days++;
+        }
+        compactionRepository.saveCompactedBefore(cutoff);
+        refresh();
+        compactedDays.increment(days);
+
+        long hits = deleteInBatches(compactionRepository::deleteHits);
+        deletedHits.increment(hits);
+        long minutes = deleteInBatches(compactionRepository::deleteMinutes);
+        if (days > 0) {
+            statsQueryCache.clear();
+            log.info("Compacted {} days before {}, deleted {} raw hits and {} minute counters",
+                    days, compactedBefore, hits, minutes);
+        }
+    }
+
+    private boolean isBeforeBoundary(LocalDateTime time) {
+        LocalDateTime boundary = compactedBefore;
+        return boundary != null && time.isBefore(boundary);
+    }
+
+    /**
+     * Checks whether any instance may already have compacted the day of {@code time}. One extra day
+     * allows for the clocks of other instances running ahead.
+     */
+    private boolean mayBeCompacted(LocalDateTime time) {
+        Duration age = compactionProperties.getAge();
+        return age != null && time.isBefore(LocalDateTime.now().minus(age).truncatedTo(UNIT).plus(1, UNIT));
+    }
+
+    private void fold(LocalDateTime day) {
+        compactionRepository.moveHours(day);
+        Map<RollupKey, HyperLogLog> sketches = new TreeMap<>(RollupKey.LOCK_ORDER);
+        compactionRepository.deleteSketches(day, (appId, uriId, sketch) ->
+                sketches.merge(new RollupKey(appId, uriId, day), sketch, (a, b) -> {
+                    a.merge(b);
+                    return a;
+                }));
+        sketchRepository.merge(StatsTier.DAY, sketches);
+        compactionRepository.saveCompactedBefore(day.plus(1, UNIT));
+    }
+
+    /**
+     * Repeats a bounded delete of rows behind the compaction boundary until nothing is left.
+     *
+     * @param delete deletes at most the given number of rows before the given time and returns the count.
+     * @return total number of deleted rows.
+     */
+    private long deleteInBatches(BatchDelete delete) {
+        LocalDateTime boundary = compactedBefore;
+        if (boundary == null) {
+            return 0;
+        }
+        int batchSize = compactionProperties.getDeleteBatchSize();
+        long total = 0;
+        int deleted;
+        do {
+            deleted = delete.apply(boundary, batchSize);
+            total += deleted;
+        } while (deleted == batchSize);
+        return total;
+    }
+
+    @FunctionalInterface
+    private interface BatchDelete {
+        int apply(LocalDateTime before, int limit);
+    }
+}
@@ -0,0 +1,136 @@
+package ru.practicum.statsserver.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.statsserver.stats.model.DictionaryTable;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.repository.DictionaryRepository;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.EnumMap;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process interning cache over the app and URI dictionaries.
+ * Hits are stored and grouped by the integer ids; names are only looked up to build responses.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatsDictionary {
+    private final DictionaryRepository dictionaryRepository;
+    private final Map<DictionaryTable, Map<String, Integer>> idsByName = newCache();
+    private final Map<DictionaryTable, Map<Integer, String>> namesById = newCache();
+
+    /**
+     * Fills in app and URI ids of hits, adding unknown names to the dictionaries.
+     * New names are written within the caller's transaction and enter the cache only after it commits,
+     * so a rolled back write never leaves ids of missing rows in the cache.
+     *
+     * @param hits hits whose ids should be resolved.
+     */
+    public void resolveIds(Collection<EndpointHit> hits) {
+        Map<DictionaryTable, Map<String, Integer>> created = newCache();
+        for (EndpointHit hit : hits) {
+            hit.setAppId(resolveId(DictionaryTable.APP, hit.getApp(), created));
+            hit.setUriId(resolveId(DictionaryTable.URI, hit.getUri(), created));
+        }
+        if (created.values().stream().allMatch(Map::isEmpty)) {
+            return;
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    created.forEach(StatsDictionary.this::cacheAll);
+                }
+            });
+        } else {
+            created.forEach(this::cacheAll);
+        }
+    }
+
+    /**
+     * Returns ids of the given names that are present in the dictionary. Unknown names are skipped.
+     *
+     * @param table dictionary to use.
+     * @param names names to look up.
+     * @return ids of known names.
+     */
+    public List<Integer> findIds(DictionaryTable table, Collection<String> names) {
+        Map<String, Integer> cached = idsByName.get(table);
+        List<Integer> ids = new ArrayList<>(names.size());
+        List<String> missing = new ArrayList<>();
+        for (String name : names) {
+            Integer id = cached.get(name);
+            if (id != null) {
+                ids.add(id);
+            } else {
+                missing.add(name);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<String, Integer> loaded = dictionaryRepository.findIds(table, missing);
+            cacheAll(table, loaded);
+            ids.addAll(loaded.values());
+        }
+        return ids;
+    }
+
+    /**
+     * Returns names for the given ids, loading the ones missing from the cache in a single query.
+     *
+     * @param table dictionary to use.
+     * @param ids   ids to look up.
+     * @return names by id.
+     */
+    public Map<Integer, String> findNames(DictionaryTable table, Collection<Integer> ids) {
+        Map<Integer, String> cached = namesById.get(table);
+        Map<Integer, String> names = new HashMap<>();
+        List<Integer> missing = new ArrayList<>();
+        for (Integer id : ids) {
+            String name = cached.get(id);
+            if (name != null) {
+                names.put(id, name);
+            } else {
+                missing.add(id);
+            }
+        }
+        if (!missing.isEmpty()) {
+            Map<Integer, String> loaded = dictionaryRepository.findNames(table, missing);
+            loaded.forEach((id, name) -> cache(table, name, id));
+            names.putAll(loaded);
+        }
+        return names;
+    }
+
+    private int resolveId(DictionaryTable table, String name, Map<DictionaryTable, Map<String, Integer>> created) {
+        Integer id = idsByName.get(table).get(name);
+        if (id == null) {
+            id = created.get(table).computeIfAbsent(name, n -> dictionaryRepository.getOrCreateId(table, n));
+        }
+        return id;
+    }
+
+    private void cacheAll(DictionaryTable table, Map<String, Integer> ids) {
+        ids.forEach((name, id) -> cache(table, name, id));
+    }
+
+    private void cache(DictionaryTable table, String name, Integer id) {
+        idsByName.get(table).put(name, id);
+        namesById.get(table).put(id, name);
+    }
+
+    private static <K, V> Map<DictionaryTable, Map<K, V>> newCache() {
+        Map<DictionaryTable, Map<K, V>> cache = new EnumMap<>(DictionaryTable.class);
+        for (DictionaryTable table : DictionaryTable.values()) {
+            cache.put(table, new ConcurrentHashMap<>());
+        }
+        return cache;
+    }
+}
@@ -0,0 +1,280 @@
+package ru.practicum.statsserver.stats.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.config.StatsCacheProperties;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.StatsCacheKey;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableSet;
+import java.util.Set;
+import java.util.TreeSet;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Supplier;
+
+/**
+ * Size-bounded LRU cache of statistics query results, keyed by the range as requested.
+ * Results that cover the current minute expire after a short TTL, results for closed minutes after a
+ * longer one. Any entry is removed as soon as a hit for one of its URIs is committed on this node inside
+ * its range, which for closed ranges only happens with late hits. Hits committed by other instances
+ * sharing the database are not seen, so they show up once the entry expires.
+ */
+@Component
+public class StatsQueryCache {
+    private static final ChronoUnit BUCKET_UNIT = ChronoUnit.MINUTES;
+
+    private final LinkedHashMap<StatsCacheKey, Entry> entries = new LinkedHashMap<>(16, 0.75f, true);
+    private final Map<String, Set<StatsCacheKey>> keysByUri = new ConcurrentHashMap<>();
+    private final Set<StatsCacheKey> allUriKeys = ConcurrentHashMap.newKeySet();
+    private final boolean enabled;
+    private final int maxSize;
+    private final long openTtlNanos;
+    private final long closedTtlNanos;
+    private final Counter cacheHits;
+    private final Counter cacheMisses;
+    private final Counter evictions;
+    private final Counter invalidations;
+
+    public StatsQueryCache(StatsCacheProperties statsCacheProperties, MeterRegistry meterRegistry) {
+        this.enabled = statsCacheProperties.isEnabled();
+        this.maxSize = statsCacheProperties.getMaxSize();
+        this.openTtlNanos = statsCacheProperties.getOpenTtl().toNanos();
+        this.closedTtlNanos = statsCacheProperties.getClosedTtl().toNanos();
+        this.cacheHits = Counter.builder("stats.cache.gets")
+                .tag("result", "hit")
+                .description("Statistics queries answered from the cache")
+                .register(meterRegistry);
+        this.cacheMisses = Counter.builder("stats.cache.gets")
+                .tag("result", "miss")
+                .description("Statistics queries answered from the database")
+                .register(meterRegistry);
+        this.evictions = Counter.builder("stats.cache.evictions")
+                .description("Cached results evicted by the size limit")
+                .register(meterRegistry);
+        this.invalidations = Counter.builder("stats.cache.invalidations")
+                .description("Cached results removed because of new hits in their range")
+                .register(meterRegistry);
+        Gauge.builder("stats.cache.size", this, StatsQueryCache::size)
+                .description("Cached statistics results")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Builds the cache key of a query.
+     *
+     * @return key whose start and end are the requested range.
+     */
+    public StatsCacheKey keyFor(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                boolean unique, boolean approximate) {
+        List<String> sortedUris = uris == null || uris.isEmpty()
+                ? null
+                : uris.stream().distinct().sorted().toList();
+        return new StatsCacheKey(start, end, sortedUris, unique, approximate);
+    }
+
+    /**
+     * Returns the cached result for a key, loading and caching it on a miss. Concurrent misses for one key
+     * share a single load: later callers wait for the result of the first one. A result is not cached
+     * if the entry is invalidated while it is being loaded.
+     *
+     * @param key    key built by {@link #keyFor}.
+     * @param loader computes the result for the key.
+     * @return statistics for the key.
+     */
+    public List<ViewStatsDto> get(StatsCacheKey key, Supplier<List<ViewStatsDto>> loader) {
+        if (!enabled) {
+            return loader.get();
+        }
+        Entry cached;
+        Entry pending = null;
+        synchronized (this) {
+            cached = entries.get(key);
+            if (cached == null || System.nanoTime() - cached.expiresAt >= 0) {
+                pending = new Entry(System.nanoTime() + (isOpen(key) ? openTtlNanos : closedTtlNanos));
+                put(key, pending);
+            }
+        }
+        if (pending == null) {
+            cacheHits.increment();
+            return await(cached.value);
+        }
+        cacheMisses.increment();
+
+        List<ViewStatsDto> value;
+        try {
+            value = loader.get();
+        } catch (RuntimeException e) {
+            synchronized (this) {
+                if (entries.get(key) == pending) {
+                    remove(key);
+                }
+            }
+            pending.value.completeExceptionally(e);
+            throw e;
+        }
+        pending.value.complete(value);
+        return value;
+    }
+
+    /**
+     * Removes the entries whose range contains one of the hits once the current transaction commits.
+     *
+     * @param hits hits with app and URI names.
+     */
+    public void invalidate(List<EndpointHit> hits) {
+        if (!enabled) {
+            return;
+        }
+        Map<String, NavigableSet<LocalDateTime>> timestampsByUri = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            timestampsByUri.computeIfAbsent(hit.getUri(), uri -> new TreeSet<>()).add(hit.getTimestamp());
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    invalidate(timestampsByUri);
+                }
+            });
+        } else {
+            invalidate(timestampsByUri);
+        }
+    }
+
+    /**
+     * Removes all entries once the current transaction commits, for changes that cannot be
+     * attributed to individual hits.
+     */
+    public void clear() {
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    clearNow();
+                }
+            });
+        } else {
+            clearNow();
+        }
+    }
+
+    private synchronized void clearNow() {
+        invalidations.increment(entries.size());
+        entries.clear();
+        keysByUri.clear();
+        allUriKeys.clear();
+    }
+
+    /**
+     * Looks up the affected entries in the URI index without holding the cache lock, which is only taken
+     * to remove them. An entry added meanwhile is loaded after the hits were committed and already has them.
+     */
+    private void invalidate(Map<String, NavigableSet<LocalDateTime>> timestampsByUri) {
+        List<StatsCacheKey> affected = new ArrayList<>();
+        NavigableSet<LocalDateTime> allTimestamps = new TreeSet<>();
+        timestampsByUri.forEach((uri, timestamps) -> {
+            collectAffected(keysByUri.getOrDefault(uri, Set.of()), timestamps, affected);
+            allTimestamps.addAll(timestamps);
+        });
+        collectAffected(allUriKeys, allTimestamps, affected);
+        if (affected.isEmpty()) {
+            return;
+        }
+        synchronized (this) {
+            for (StatsCacheKey key : affected) {
+                if (entries.containsKey(key)) {
+                    remove(key);
+                    invalidations.increment();
+                }
+            }
+        }
+    }
+
+    private static void collectAffected(Set<StatsCacheKey> keys, NavigableSet<LocalDateTime> timestamps,
+                                        List<StatsCacheKey> affected) {
+        for (StatsCacheKey key : keys) {
+            LocalDateTime first = timestamps.ceiling(key.getStart());
+            if (first != null && !first.isAfter(key.getEnd())) {
+                affected.add(key);
+            }
+        }
+    }
+
+    private void put(StatsCacheKey key, Entry entry) {
+        if (entries.put(key, entry) == null) {
+            if (key.getUris() == null) {
+                allUriKeys.add(key);
+            } else {
+                key.getUris().forEach(uri -> keysByUri.computeIfAbsent(uri, u -> ConcurrentHashMap.newKeySet()).add(key));
+            }
+        }
+        Iterator<StatsCacheKey> eldest = entries.keySet().iterator();
+        while (entries.size() > maxSize) {
+            StatsCacheKey evicted = eldest.next();
+            eldest.remove();
+            unindex(evicted);
+            evictions.increment();
+        }
+    }
+
+    private void remove(StatsCacheKey key) {
+        entries.remove(key);
+        unindex(key);
+    }
+
+    private void unindex(StatsCacheKey key) {
+        if (key.getUris() == null) {
+            allUriKeys.remove(key);
+            return;
+        }
+        for (String uri : key.getUris()) {
+            Set<StatsCacheKey> keys = keysByUri.get(uri);
+            if (keys != null && keys.remove(key) && keys.isEmpty()) {
+                keysByUri.remove(uri);
+            }
+        }
+    }
+
+    private synchronized int size() {
+        return entries.size();
+    }
+
+    private static boolean isOpen(StatsCacheKey key) {
+        return !key.getEnd().isBefore(LocalDateTime.now().truncatedTo(BUCKET_UNIT));
+    }
+
+    private static List<ViewStatsDto> await(CompletableFuture<List<ViewStatsDto>> value) {
+        try {
+            return value.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+            throw e;
+        }
+    }
+
+    private static final class Entry {
+        private final long expiresAt;
+        private final CompletableFuture<List<ViewStatsDto>> value = new CompletableFuture<>();
+
+        private Entry(long expiresAt) {
+            this.expiresAt = expiresAt;
+        }
+    }
+}
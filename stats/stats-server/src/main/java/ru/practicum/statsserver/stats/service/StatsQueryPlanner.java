@@ -0,0 +1,95 @@
+package ru.practicum.statsserver.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsserver.stats.model.QuerySegment;
+import ru.practicum.statsserver.stats.model.StatsTier;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Splits a time range into segments so that the fully covered middle is read from the coarsest
+ * rollup tier and only the partially covered edges fall through to finer tiers and raw hits.
+ * The number of segments is bounded by the number of tiers, however long the range is.
+ * Compacted days are only kept as whole days, so the part of a range before the compaction
+ * boundary is widened to whole days and read from the daily tier.
+ */
+@Component
+@RequiredArgsConstructor
+public class StatsQueryPlanner {
+    private static final StatsTier[] TIERS = Arrays.stream(StatsTier.values())
+            .filter(tier -> !tier.isCompacted())
+            .toArray(StatsTier[]::new);
+
+    private final StatsCompactor statsCompactor;
+
+    /**
+     * Builds a plan for the half-open range {@code [from, to)}.
+     *
+     * @param from start of the range, inclusive.
+     * @param to   end of the range, exclusive.
+     * @return non-empty segments in chronological order.
+     */
+    public List<QuerySegment> plan(LocalDateTime from, LocalDateTime to) {
+        return plan(from, to, TIERS[TIERS.length - 1].getUnit());
+    }
+
+    /**
+     * Builds a plan for the half-open range {@code [from, to)} that reads no tier coarser than {@code unit},
+     * so that every row read falls into a single bucket of that unit. Compacted days are still read
+     * as whole days.
+     *
+     * @param from start of the range, inclusive.
+     * @param to   end of the range, exclusive.
+     * @param unit coarsest bucket to read.
+     * @return non-empty segments in chronological order.
+     */
+    public List<QuerySegment> plan(LocalDateTime from, LocalDateTime to, ChronoUnit unit) {
+        List<QuerySegment> segments = new ArrayList<>();
+        if (from.isBefore(to) && statsCompactor.isCompacted(from)) {
+            LocalDateTime compactedBefore = statsCompactor.getCompactedBefore();
+            ChronoUnit dayUnit = StatsTier.DAY.getUnit();
+            LocalDateTime compactedTo = ceil(to, dayUnit);
+            if (compactedBefore.isBefore(compactedTo)) {
+                compactedTo = compactedBefore;
+            }
+            segments.add(new QuerySegment(StatsTier.DAY, from.truncatedTo(dayUnit), compactedTo));
+            from = compactedBefore;
+        }
+        int tierIndex = TIERS.length - 1;
+        while (TIERS[tierIndex].isRollup() && TIERS[tierIndex].getUnit().compareTo(unit) > 0) {
+            tierIndex--;
+        }
+        plan(from, to, tierIndex, segments);
+        return segments;
+    }
+
+    private void plan(LocalDateTime from, LocalDateTime to, int tierIndex, List<QuerySegment> segments) {
+        if (!from.isBefore(to)) {
+            return;
+        }
+        StatsTier tier = TIERS[tierIndex];
+        if (!tier.isRollup()) {
+            segments.add(new QuerySegment(tier, from, to));
+            return;
+        }
+        LocalDateTime alignedFrom = ceil(from, tier.getUnit());
+        LocalDateTime alignedTo = to.truncatedTo(tier.getUnit());
+        if (!alignedFrom.isBefore(alignedTo)) {
+            plan(from, to, tierIndex - 1, segments);
+            return;
+        }
+        plan(from, alignedFrom, tierIndex - 1, segments);
+        segments.add(new QuerySegment(tier, alignedFrom, alignedTo));
+        plan(alignedTo, to, tierIndex - 1, segments);
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime truncated = time.truncatedTo(unit);
+        return truncated.equals(time) ? time : truncated.plus(1, unit);
+    }
+}
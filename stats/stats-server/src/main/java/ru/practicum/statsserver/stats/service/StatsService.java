@@ -1,13 +1,39 @@
 package ru.practicum.statsserver.stats.service;
 
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.TimeSeriesPointDto;
 import ru.practicum.dto.ViewStatsDto;
 
 import java.time.LocalDateTime;
+import java.util.Iterator;
 import java.util.List;
+import java.util.function.Consumer;
 
 public interface StatsService {
     void create(EndpointHitDto endpointHitDto);
 
-    List<ViewStatsDto> getStats(LocalDateTime start, LocalDateTime end, List<String> uris, boolean unique);
+    boolean isCreateBlocking();
+
+    void createAll(Iterator<EndpointHitDto> endpointHitDtos);
+
+    List<ViewStatsDto> getStats(LocalDateTime start,
+                                LocalDateTime end,
+                                List<String> uris,
+                                boolean unique,
+                                boolean approximate);
+
+    void streamStats(LocalDateTime start,
+                     LocalDateTime end,
+                     List<String> uris,
+                     boolean unique,
+                     boolean approximate,
+                     Consumer<ViewStatsDto> consumer);
+
+    List<ViewStatsDto> getTopStats(LocalDateTime start, LocalDateTime end, int k);
+
+    List<TimeSeriesPointDto> getTimeSeries(String uri,
+                                           LocalDateTime start,
+                                           LocalDateTime end,
+                                           String interval,
+                                           boolean unique);
 }
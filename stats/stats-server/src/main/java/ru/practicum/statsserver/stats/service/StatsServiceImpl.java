@@ -4,75 +4,391 @@ import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
 import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.dto.TimeSeriesPointDto;
 import ru.practicum.dto.ViewStatsDto;
+import ru.practicum.statsserver.stats.config.IngestProperties;
+import ru.practicum.statsserver.stats.config.TimeSeriesProperties;
+import ru.practicum.statsserver.stats.config.TopHitsProperties;
 import ru.practicum.statsserver.stats.exception.exception.BadRequestException;
 import ru.practicum.statsserver.stats.mapper.EndpointHitMapper;
+import ru.practicum.statsserver.stats.model.DictionaryTable;
 import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.HitCount;
+import ru.practicum.statsserver.stats.model.QuerySegment;
+import ru.practicum.statsserver.stats.model.StatsCacheKey;
+import ru.practicum.statsserver.stats.model.TimeSeriesInterval;
+import ru.practicum.statsserver.stats.repository.RollupRepository;
 import ru.practicum.statsserver.stats.repository.StatsRepository;
+import ru.practicum.statsserver.stats.repository.StatsStreamRepository;
+import ru.practicum.statsserver.stats.repository.TimeSeriesRepository;
+import ru.practicum.statsserver.stats.util.HyperLogLog;
 
 import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
 import java.util.ArrayList;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.Iterator;
 import java.util.List;
+import java.util.Map;
+import java.util.Optional;
 import java.util.Set;
+import java.util.function.Consumer;
 
 @Service
 @Slf4j
 @RequiredArgsConstructor
 public class StatsServiceImpl implements StatsService {
     private final StatsRepository statsRepository;
+    private final RollupRepository rollupRepository;
+    private final StatsStreamRepository statsStreamRepository;
     private final EndpointHitMapper endpointHitMapper;
+    private final HitIngestor hitIngestor;
+    private final HitWriter hitWriter;
+    private final StatsQueryPlanner statsQueryPlanner;
+    private final UniqueSketchService uniqueSketchService;
+    private final StatsDictionary statsDictionary;
+    private final IngestProperties ingestProperties;
+    private final TopHitsTracker topHitsTracker;
+    private final TopHitsProperties topHitsProperties;
+    private final HotWindow hotWindow;
+    private final StatsQueryCache statsQueryCache;
+    private final TransactionTemplate transactionTemplate;
+    private final StatsCompactor statsCompactor;
+    private final TimeSeriesRepository timeSeriesRepository;
+    private final TimeSeriesProperties timeSeriesProperties;
 
     /**
-     * Creates a new visit record in the database.
+     * Creates a new visit record. Depending on {@code stats.ingest.mode} the hit is either
+     * saved right away or buffered and committed later by the background writer.
      *
      * @param endpointHitDto DTO object containing visit data.
      */
     @Override
-    @Transactional
     public void create(EndpointHitDto endpointHitDto) {
         log.info("Saving endpoint hit: {}", endpointHitDto);
         EndpointHit endpointHit = endpointHitMapper.toEndpointHit(endpointHitDto);
-        statsRepository.save(endpointHit);
-        log.info("Endpoint hit saved successfully");
+        hitIngestor.ingest(endpointHit);
+        log.info("Endpoint hit accepted");
+    }
+
+    /**
+     * Tells whether {@link #create} waits for I/O, which depends on {@code stats.ingest.mode}.
+     *
+     * @return false only when hits are buffered in memory.
+     */
+    @Override
+    public boolean isCreateBlocking() {
+        return hitIngestor.isBlocking();
+    }
+
+    /**
+     * Saves a batch of visit records in a single transaction.
+     * Hits are consumed lazily and written with batched multi-row inserts,
+     * so a streamed request body is never fully materialized in memory.
+     *
+     * @param endpointHitDtos iterator over DTO objects containing visit data.
+     */
+    @Override
+    @Transactional
+    public void createAll(Iterator<EndpointHitDto> endpointHitDtos) {
+        int batchSize = ingestProperties.getBatchSize();
+        List<EndpointHit> batch = new ArrayList<>(batchSize);
+        long saved = 0;
+
+        while (endpointHitDtos.hasNext()) {
+            batch.add(endpointHitMapper.toEndpointHit(endpointHitDtos.next()));
+            if (batch.size() == batchSize) {
+                hitWriter.write(batch);
+                saved += batch.size();
+                batch.clear();
+            }
+        }
+        hitWriter.write(batch);
+        saved += batch.size();
+        log.info("Saved {} endpoint hits in batch", saved);
     }
 
     /**
      * Retrieves a list of statistics based on the specified parameters.
      * The statistics include the number of hits per URI within a given time range.
-     * If unique is true, only unique hits per IP are counted.
+     * If unique is true, only unique hits per IP are counted for each URI.
+     * Aggregation is done by the database on dictionary ids, so memory use depends on the number of URIs, not hits.
+     * Plain hit counts read whole minutes and hours from the rollup tables and scan raw hits
+     * only for the partially covered edges of the range. The most recent minutes are read from the
+     * in-memory hot window. Results are cached, see {@link StatsQueryCache}.
+     * Ranges that start in a compacted day are counted in whole days from that day on, and their unique
+     * hits can only be estimated, see {@link StatsCompactor}.
      *
-     * @param start  Start date and time as a string (format: "yyyy-MM-dd HH:mm:ss").
-     * @param end    End date and time as a string (format: "yyyy-MM-dd HH:mm:ss").
-     * @param uris   List of URIs to filter by. If null or empty, all URIs are included.
-     * @param unique Flag indicating whether to count only unique hits per IP.
+     * @param start       Start date and time as a string (format: "yyyy-MM-dd HH:mm:ss").
+     * @param end         End date and time as a string (format: "yyyy-MM-dd HH:mm:ss").
+     * @param uris        List of URIs to filter by. If null or empty, all URIs are included.
+     * @param unique      Flag indicating whether to count only unique hits per IP.
+     * @param approximate Flag allowing unique hits to be estimated from sketches instead of counted exactly.
      * @return A list of {@link ViewStatsDto} objects representing statistics for each URI.
      */
     @Override
     public List<ViewStatsDto> getStats(LocalDateTime start,
                                        LocalDateTime end,
                                        List<String> uris,
-                                       boolean unique) {
-        if (start.isAfter(end)) {
-            throw new BadRequestException("Start date must be before end date");
+                                       boolean unique,
+                                       boolean approximate) {
+        validateRange(start, end);
+        StatsCacheKey key = statsQueryCache.keyFor(start, end, uris, unique, approximate);
+        List<ViewStatsDto> statsDtos = statsQueryCache.get(key, () -> transactionTemplate.execute(status ->
+                loadStats(key.getStart(), key.getEnd(), key.getUris(), unique, approximate)));
+        log.info("Fetched {} stats entries", statsDtos.size());
+
+        return statsDtos;
+    }
+
+    /**
+     * Streams the same statistics as {@link #getStats} to a consumer row by row.
+     * Exact counts are aggregated, sorted and resolved to names by the database and read
+     * through a cursor, so memory use does not depend on the number of URIs.
+     * Approximate unique counts are merged in memory first, as sketches cannot be merged in SQL.
+     *
+     * @param start       Start date and time of the period (inclusive).
+     * @param end         End date and time of the period (inclusive).
+     * @param uris        List of URIs to filter by. If null or empty, all URIs are included.
+     * @param unique      Flag indicating whether to count only unique hits per IP.
+     * @param approximate Flag allowing unique hits to be estimated from sketches instead of counted exactly.
+     * @param consumer    Receives statistics in descending order of hits.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public void streamStats(LocalDateTime start,
+                            LocalDateTime end,
+                            List<String> uris,
+                            boolean unique,
+                            boolean approximate,
+                            Consumer<ViewStatsDto> consumer) {
+        validateRange(start, end);
+        List<Integer> uriIds = findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return;
         }
-        List<EndpointHit> hits = new ArrayList<>();
 
-        if (uris != null && !uris.isEmpty()) {
-            hits.addAll(statsRepository.findByTimestampBetweenAndUriIn(start, end, uris));
+        if (unique && (approximate || statsCompactor.isCompacted(start))) {
+            endpointHitMapper.toViewStatsDtoList(uniqueSketchService.estimateUniqueStats(start, end.plusSeconds(1), uriIds))
+                    .forEach(consumer);
+        } else if (unique) {
+            statsStreamRepository.streamUniqueStats(start, end, uriIds, consumer);
         } else {
-            hits.addAll(statsRepository.findByTimestampBetween(start, end));
+            statsStreamRepository.streamStats(statsQueryPlanner.plan(start, end.plusSeconds(1)), uriIds, consumer);
         }
+    }
 
-        if (unique) {
-            Set<String> uniqueIps = new HashSet<>();
-            hits.removeIf(hit -> !uniqueIps.add(hit.getIp()));
+    /**
+     * Retrieves the {@code k} most visited URIs within a given time range.
+     * Recent ranges are served by the in-memory heavy hitters summary, which narrows the search down
+     * to a few candidates whose exact counts are read from the rollups. Older ranges, or ranges where
+     * the summary cannot tell the top URIs apart, are answered by the database sorting and limiting
+     * the aggregated counts itself.
+     *
+     * @param start Start date and time of the period (inclusive).
+     * @param end   End date and time of the period (inclusive).
+     * @param k     Number of URIs to return.
+     * @return Up to {@code k} statistics in descending order of hits.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<ViewStatsDto> getTopStats(LocalDateTime start, LocalDateTime end, int k) {
+        validateRange(start, end);
+        if (k <= 0 || k > topHitsProperties.getMaxK()) {
+            throw new BadRequestException("k must be between 1 and " + topHitsProperties.getMaxK());
         }
+        LocalDateTime to = end.plusSeconds(1);
+        List<QuerySegment> segments = statsQueryPlanner.plan(start, to);
+        Optional<Set<Long>> candidates = topHitsTracker.findCandidates(start, to, k);
+        List<ViewStatsDto> statsDtos;
 
-        List<ViewStatsDto> statsDtos = endpointHitMapper.toViewStatsDtoList(hits);
-        log.info("Fetched {} stats entries", statsDtos.size());
+        if (candidates.isPresent()) {
+            Set<Long> keys = candidates.get();
+            List<Integer> uriIds = keys.stream().map(HitCount::uriId).distinct().toList();
+            List<HitCount> partialCounts = new ArrayList<>();
+            if (!uriIds.isEmpty()) {
+                for (QuerySegment segment : segments) {
+                    partialCounts.addAll(findSegmentCounts(segment, uriIds));
+                }
+            }
+            List<HitCount> counts = endpointHitMapper.mergeHitCounts(partialCounts).stream()
+                    .filter(count -> keys.contains(count.getKey()))
+                    .limit(k)
+                    .toList();
+            statsDtos = endpointHitMapper.toViewStatsDtoList(counts);
+            log.info("Fetched top {} stats from {} candidates", statsDtos.size(), keys.size());
+        } else {
+            statsDtos = new ArrayList<>(k);
+            statsStreamRepository.streamStats(segments, null, k, statsDtos::add);
+            log.info("Fetched top {} stats from the database", statsDtos.size());
+        }
 
         return statsDtos;
     }
-}
\ No newline at end of file
+
+    /**
+     * Retrieves hits of one URI per time bucket within a given time range, summed over apps.
+     * Hit counts are read from the coarsest rollup tier that still fits into a bucket, so a chart
+     * costs one query per storage tier instead of one {@link #getStats} call per bucket.
+     * Unique hits are counted exactly per bucket from raw hits. Compacted days can only be bucketed
+     * by day and their unique hits are estimated from sketches, see {@link StatsCompactor}.
+     *
+     * @param uri      URI to chart.
+     * @param start    Start date and time of the period (inclusive).
+     * @param end      End date and time of the period (inclusive).
+     * @param interval Bucket size: 1m, 1h or 1d.
+     * @param unique   Flag indicating whether to count only unique hits per IP.
+     * @return One point per bucket in chronological order, including empty buckets. The first and
+     *         the last bucket only count hits within the period.
+     */
+    @Override
+    @Transactional(readOnly = true)
+    public List<TimeSeriesPointDto> getTimeSeries(String uri,
+                                                  LocalDateTime start,
+                                                  LocalDateTime end,
+                                                  String interval,
+                                                  boolean unique) {
+        validateRange(start, end);
+        TimeSeriesInterval bucketSize = TimeSeriesInterval.fromValue(interval)
+                .orElseThrow(() -> new BadRequestException("Interval must be one of 1m, 1h, 1d"));
+        ChronoUnit unit = bucketSize.getUnit();
+        LocalDateTime from = start.truncatedTo(unit);
+        LocalDateTime to = end.plusSeconds(1);
+        if (unit.between(from, end) >= timeSeriesProperties.getMaxPoints()) {
+            throw new BadRequestException("Time series must not have more than "
+                    + timeSeriesProperties.getMaxPoints() + " points");
+        }
+        if (statsCompactor.isCompacted(start) && bucketSize != TimeSeriesInterval.DAY) {
+            throw new BadRequestException("Only daily time series are kept before "
+                    + statsCompactor.getCompactedBefore());
+        }
+
+        Map<LocalDateTime, Long> counts = new HashMap<>();
+        List<Integer> uriIds = statsDictionary.findIds(DictionaryTable.URI, List.of(uri));
+        if (!uriIds.isEmpty()) {
+            int uriId = uriIds.get(0);
+            if (unique) {
+                findUniqueBuckets(uriId, start, to, bucketSize, counts);
+            } else {
+                for (QuerySegment segment : statsQueryPlanner.plan(start, to, unit)) {
+                    timeSeriesRepository.forEachBucket(segment, uriId, bucketSize,
+                            (bucket, hits) -> counts.merge(bucket, hits, Long::sum));
+                }
+            }
+        }
+
+        List<TimeSeriesPointDto> points = new ArrayList<>();
+        for (LocalDateTime bucket = from; bucket.isBefore(to); bucket = bucket.plus(1, unit)) {
+            points.add(new TimeSeriesPointDto(bucket, counts.getOrDefault(bucket, 0L)));
+        }
+        log.info("Fetched {} time series points for uri {}", points.size(), uri);
+
+        return points;
+    }
+
+    /**
+     * Counts unique hits per bucket: compacted days from their sketches, the rest exactly from raw hits.
+     */
+    private void findUniqueBuckets(int uriId,
+                                   LocalDateTime from,
+                                   LocalDateTime to,
+                                   TimeSeriesInterval interval,
+                                   Map<LocalDateTime, Long> counts) {
+        if (statsCompactor.isCompacted(from)) {
+            LocalDateTime compactedBefore = statsCompactor.getCompactedBefore();
+            Map<LocalDateTime, HyperLogLog> sketches = new HashMap<>();
+            timeSeriesRepository.forEachDaySketch(from.truncatedTo(interval.getUnit()), compactedBefore, uriId,
+                    (day, sketch) -> sketches.computeIfAbsent(day, d -> new HyperLogLog()).merge(sketch));
+            sketches.forEach((day, sketch) -> counts.put(day, sketch.estimate()));
+            from = compactedBefore;
+        }
+        if (from.isBefore(to)) {
+            timeSeriesRepository.forEachUniqueBucket(from, to, uriId, interval, counts::put);
+        }
+    }
+
+    private List<ViewStatsDto> loadStats(LocalDateTime start,
+                                         LocalDateTime end,
+                                         List<String> uris,
+                                         boolean unique,
+                                         boolean approximate) {
+        List<Integer> uriIds = findUriIds(uris);
+        if (uriIds != null && uriIds.isEmpty()) {
+            return List.of();
+        }
+        List<HitCount> counts;
+
+        if (unique && (approximate || statsCompactor.isCompacted(start))) {
+            counts = uniqueSketchService.estimateUniqueStats(start, end.plusSeconds(1), uriIds);
+        } else if (unique) {
+            counts = uriIds != null
+                    ? statsRepository.findUniqueStatsByUris(start, end, uriIds)
+                    : statsRepository.findUniqueStats(start, end);
+        } else {
+            counts = endpointHitMapper.mergeHitCounts(findHitCounts(start, end.plusSeconds(1), uriIds));
+        }
+        return endpointHitMapper.toViewStatsDtoList(counts);
+    }
+
+    private static void validateRange(LocalDateTime start, LocalDateTime end) {
+        if (start.isAfter(end)) {
+            throw new BadRequestException("Start date must be before end date");
+        }
+    }
+
+    /**
+     * Translates a URI filter to dictionary ids.
+     *
+     * @return null when all URIs are requested, otherwise ids of the known URIs, possibly none.
+     */
+    private List<Integer> findUriIds(List<String> uris) {
+        if (uris == null || uris.isEmpty()) {
+            return null;
+        }
+        return statsDictionary.findIds(DictionaryTable.URI, uris);
+    }
+
+    /**
+     * Collects partial hit counts for {@code [from, to)}, taking the tail from the hot window when it
+     * covers one and planning only the rest against the database. The tail may include the last partial
+     * minute, so it is looked up again after its counters are read: if a hit timestamped after {@code to}
+     * arrived meanwhile, the tail changes and is read again.
+     */
+    private List<HitCount> findHitCounts(LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        List<HitCount> partialCounts = new ArrayList<>();
+        List<QuerySegment> segments = new ArrayList<>();
+        Optional<QuerySegment> hotTail = hotWindow.cover(from, to);
+        List<HitCount> hotCounts = List.of();
+        while (hotTail.isPresent()) {
+            hotCounts = hotWindow.findStats(hotTail.get(), uriIds);
+            Optional<QuerySegment> coveredAfterRead = hotWindow.cover(from, to);
+            if (coveredAfterRead.equals(hotTail)) {
+                break;
+            }
+            hotTail = coveredAfterRead;
+            hotCounts = List.of();
+        }
+        if (hotTail.isPresent()) {
+            partialCounts.addAll(hotCounts);
+            segments.addAll(statsQueryPlanner.plan(from, hotTail.get().getFrom()));
+            segments.addAll(statsQueryPlanner.plan(hotTail.get().getTo(), to));
+        } else {
+            segments.addAll(statsQueryPlanner.plan(from, to));
+        }
+        for (QuerySegment segment : segments) {
+            partialCounts.addAll(findSegmentCounts(segment, uriIds));
+        }
+        return partialCounts;
+    }
+
+    private List<HitCount> findSegmentCounts(QuerySegment segment, List<Integer> uriIds) {
+        if (segment.getTier().isRollup()) {
+            return rollupRepository.findStats(segment.getTier(), segment.getFrom(), segment.getTo(), uriIds);
+        }
+        return uriIds != null
+                ? statsRepository.findStatsByUris(segment.getFrom(), segment.getTo(), uriIds)
+                : statsRepository.findStats(segment.getFrom(), segment.getTo());
+    }
+}
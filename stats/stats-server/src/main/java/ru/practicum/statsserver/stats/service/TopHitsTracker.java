@@ -0,0 +1,177 @@
+package ru.practicum.statsserver.stats.service;
+
+import jakarta.annotation.PostConstruct;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.statsserver.stats.config.TopHitsProperties;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.HitCount;
+import ru.practicum.statsserver.stats.model.StatsTier;
+import ru.practicum.statsserver.stats.repository.RollupRepository;
+import ru.practicum.statsserver.stats.util.SpaceSaving;
+
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.TreeMap;
+
+/**
+ * Keeps an hourly Space-Saving summary of committed hits per app and URI for the recent window.
+ * The summaries are only used to narrow the search for the top URIs down to a small set of
+ * candidates whose exact counts are then read from the database. The summaries are seeded from the
+ * hourly rollups on startup.
+ */
+@Slf4j
+@Component
+public class TopHitsTracker {
+    private static final StatsTier SEED_TIER = StatsTier.HOUR;
+    private static final ChronoUnit BUCKET_UNIT = SEED_TIER.getUnit();
+
+    private final NavigableMap<LocalDateTime, SpaceSaving> buckets = new TreeMap<>();
+    private final int capacity;
+    private final Duration window;
+    private final int maxCandidates;
+    private final RollupRepository rollupRepository;
+
+    public TopHitsTracker(TopHitsProperties topHitsProperties, RollupRepository rollupRepository) {
+        this.capacity = topHitsProperties.getCapacity();
+        this.window = topHitsProperties.getWindow();
+        this.maxCandidates = topHitsProperties.getMaxCandidates();
+        this.rollupRepository = rollupRepository;
+    }
+
+    /**
+     * Loads the hourly counters of the window, so the summaries also cover hits written before startup.
+     */
+    @PostConstruct
+    public synchronized void seed() {
+        LocalDateTime now = LocalDateTime.now();
+        Map<LocalDateTime, Map<Long, Long>> counts = new HashMap<>();
+        rollupRepository.forEachCounter(SEED_TIER, retentionStart(now), horizon(now), (appId, uriId, bucket, hits) ->
+                counts.computeIfAbsent(bucket, b -> new HashMap<>()).put(HitCount.key(appId, uriId), hits));
+        add(counts);
+        log.info("Seeded top hits summaries for {} hours", counts.size());
+    }
+
+    /**
+     * Counts hits once the current transaction commits, so rolled back hits are never counted.
+     *
+     * @param hits hits with resolved dictionary ids.
+     */
+    public void record(List<EndpointHit> hits) {
+        Map<LocalDateTime, Map<Long, Long>> counts = new HashMap<>();
+        for (EndpointHit hit : hits) {
+            counts.computeIfAbsent(hit.getTimestamp().truncatedTo(BUCKET_UNIT), b -> new HashMap<>())
+                    .merge(HitCount.key(hit.getAppId(), hit.getUriId()), 1L, Long::sum);
+        }
+        if (TransactionSynchronizationManager.isSynchronizationActive()) {
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCommit() {
+                    add(counts);
+                }
+            });
+        } else {
+            add(counts);
+        }
+    }
+
+    /**
+     * Finds the keys that may be among the {@code k} most visited ones in {@code [from, to)}.
+     *
+     * @param from start of the range, inclusive.
+     * @param to   end of the range, exclusive.
+     * @param k    number of top keys requested.
+     * @return keys packed by {@link HitCount#key}, a superset of the top {@code k}, or empty when
+     *         the range is not covered by the summaries or the candidates cannot be narrowed down.
+     */
+    public synchronized Optional<Set<Long>> findCandidates(LocalDateTime from, LocalDateTime to, int k) {
+        LocalDateTime now = LocalDateTime.now();
+        if (from.truncatedTo(BUCKET_UNIT).isBefore(retentionStart(now)) || to.isAfter(horizon(now))) {
+            return Optional.empty();
+        }
+
+        long unmonitoredUpper = 0;
+        Map<Long, Long> upper = new HashMap<>();
+        Map<Long, Long> lower = new HashMap<>();
+        for (Map.Entry<LocalDateTime, SpaceSaving> entry
+                : buckets.subMap(from.truncatedTo(BUCKET_UNIT), true, to, false).entrySet()) {
+            LocalDateTime bucket = entry.getKey();
+            boolean full = !bucket.isBefore(from) && !bucket.plus(1, BUCKET_UNIT).isAfter(to);
+            SpaceSaving summary = entry.getValue();
+            long minCount = summary.minCount();
+            unmonitoredUpper += minCount;
+            summary.forEach((key, count, error) -> {
+                upper.merge(key, count - minCount, Long::sum);
+                if (full) {
+                    lower.merge(key, count - error, Long::sum);
+                }
+            });
+        }
+
+        long threshold = kthLargest(lower.values(), k);
+        if (unmonitoredUpper > 0 && unmonitoredUpper >= threshold) {
+            return Optional.empty();
+        }
+        Set<Long> candidates = new HashSet<>();
+        for (Map.Entry<Long, Long> entry : upper.entrySet()) {
+            if (entry.getValue() + unmonitoredUpper >= threshold) {
+                candidates.add(entry.getKey());
+            }
+        }
+        return candidates.size() > maxCandidates ? Optional.empty() : Optional.of(candidates);
+    }
+
+    /**
+     * Drops summaries that have fallen out of the window.
+     */
+    @Scheduled(fixedDelayString = "${stats.top.evict-interval:PT5M}")
+    public synchronized void evictExpired() {
+        buckets.headMap(retentionStart(LocalDateTime.now())).clear();
+    }
+
+    private synchronized void add(Map<LocalDateTime, Map<Long, Long>> counts) {
+        LocalDateTime now = LocalDateTime.now();
+        LocalDateTime retentionStart = retentionStart(now);
+        LocalDateTime horizon = horizon(now);
+        counts.forEach((bucket, bucketCounts) -> {
+            if (bucket.isBefore(retentionStart) || !bucket.isBefore(horizon)) {
+                return;
+            }
+            SpaceSaving summary = buckets.computeIfAbsent(bucket, b -> new SpaceSaving(capacity));
+            bucketCounts.forEach(summary::add);
+        });
+    }
+
+    private LocalDateTime retentionStart(LocalDateTime now) {
+        return now.truncatedTo(BUCKET_UNIT).minus(window);
+    }
+
+    /**
+     * Bounds how far into the future hit timestamps are tracked, so bogus timestamps cannot grow the map.
+     */
+    private LocalDateTime horizon(LocalDateTime now) {
+        return now.truncatedTo(BUCKET_UNIT).plus(window);
+    }
+
+    private static long kthLargest(Iterable<Long> values, int k) {
+        List<Long> sorted = new ArrayList<>();
+        values.forEach(sorted::add);
+        if (sorted.size() < k) {
+            return 0;
+        }
+        sorted.sort(null);
+        return sorted.get(sorted.size() - k);
+    }
+}
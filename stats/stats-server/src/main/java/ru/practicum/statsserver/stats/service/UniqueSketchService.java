@@ -0,0 +1,70 @@
+package ru.practicum.statsserver.stats.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.stereotype.Component;
+import ru.practicum.statsserver.stats.model.HitCount;
+import ru.practicum.statsserver.stats.model.QuerySegment;
+import ru.practicum.statsserver.stats.model.StatsTier;
+import ru.practicum.statsserver.stats.repository.SketchRepository;
+import ru.practicum.statsserver.stats.util.HyperLogLog;
+import ru.practicum.statsserver.stats.util.IpAddressUtil;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Estimates unique visitors per URI from HyperLogLog sketches kept per (app, uri, hour).
+ * Whole hours are answered by merging stored sketches; the partially covered edges
+ * are read from raw hits and added to the same sketches, so the only error is the sketch error.
+ * Sketches of recent hits not yet merged into the database are added from {@link PendingSketches}.
+ * Compacted days are answered by their daily sketches.
+ */
+@Component
+@RequiredArgsConstructor
+public class UniqueSketchService {
+    public static final StatsTier SKETCH_TIER = StatsTier.HOUR;
+
+    private final SketchRepository sketchRepository;
+    private final PendingSketches pendingSketches;
+    private final StatsQueryPlanner statsQueryPlanner;
+
+    /**
+     * Estimates unique IPs per app and URI within the half-open range {@code [from, to)}.
+     *
+     * @param from   start of the range, inclusive.
+     * @param to     end of the range, exclusive.
+     * @param uriIds URI ids to filter by, or null for all URIs.
+     * @return estimated unique hits sorted in descending order.
+     */
+    public List<HitCount> estimateUniqueStats(LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        Map<Integer, Map<Integer, HyperLogLog>> sketches = new HashMap<>();
+
+        for (QuerySegment segment : statsQueryPlanner.plan(from, to)) {
+            if (segment.getTier() == SKETCH_TIER || segment.getTier().isCompacted()) {
+                sketchRepository.forEachSketch(segment.getTier(), segment.getFrom(), segment.getTo(), uriIds,
+                        (appId, uriId, sketch) -> sketchFor(sketches, appId, uriId).merge(sketch));
+                if (segment.getTier() == SKETCH_TIER) {
+                    pendingSketches.forEachSketch(segment.getFrom(), segment.getTo(), uriIds,
+                            (appId, uriId, sketch) -> sketchFor(sketches, appId, uriId).merge(sketch));
+                }
+            } else {
+                sketchRepository.forEachDistinctIp(segment.getFrom(), segment.getTo(), uriIds,
+                        (appId, uriId, ip) -> sketchFor(sketches, appId, uriId).add(IpAddressUtil.toBytes(ip)));
+            }
+        }
+
+        List<HitCount> counts = new ArrayList<>();
+        sketches.forEach((appId, uriSketches) -> uriSketches.forEach((uriId, sketch) ->
+                counts.add(new HitCount(appId, uriId, sketch.estimate()))));
+        counts.sort(Comparator.comparing(HitCount::getHits).reversed());
+        return counts;
+    }
+
+    private static HyperLogLog sketchFor(Map<Integer, Map<Integer, HyperLogLog>> sketches, int appId, int uriId) {
+        return sketches.computeIfAbsent(appId, a -> new HashMap<>()).computeIfAbsent(uriId, u -> new HyperLogLog());
+    }
+}
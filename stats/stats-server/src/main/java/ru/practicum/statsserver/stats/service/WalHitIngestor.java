@@ -0,0 +1,279 @@
+package ru.practicum.statsserver.stats.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import jakarta.annotation.PostConstruct;
+import jakarta.annotation.PreDestroy;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.dto.EndpointHitDto;
+import ru.practicum.statsserver.stats.config.IngestProperties;
+import ru.practicum.statsserver.stats.config.WalProperties;
+import ru.practicum.statsserver.stats.model.EndpointHit;
+import ru.practicum.statsserver.stats.model.WalCheckpoint;
+import ru.practicum.statsserver.stats.repository.WalCheckpointRepository;
+import ru.practicum.statsserver.stats.util.SegmentedLog;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Appends hits to a write-ahead log on local disk and returns once the log is flushed, so accepting a hit
+ * costs a sequential disk write and keeps working while the database is unavailable. A scheduled loader
+ * moves logged hits to the database in batches and records how far it got in the same transaction,
+ * so hits left in the log after a crash or an outage are loaded exactly once on the next pass.
+ * Every node keeps its own checkpoint, so several nodes can run in wal mode against one database,
+ * provided the hot window, which only sees the hits of its own node, is disabled.
+ * A batch the database rejects is split until the rejected hits are found; they are moved to a
+ * dead-letter file next to the log, so one bad hit cannot hold back the hits behind it.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "wal")
+public class WalHitIngestor implements HitIngestor {
+    private static final String DEAD_LETTER_FILE = "dead-letter.ndjson";
+
+    private final HitWriter hitWriter;
+    private final TransactionTemplate transactionTemplate;
+    private final WalCheckpointRepository walCheckpointRepository;
+    private final WalProperties walProperties;
+    private final ObjectMapper objectMapper;
+    private final int batchSize;
+    private final Timer appendLatency;
+    private final Counter loadedHits;
+    private final Counter deadLetters;
+    private final MeterRegistry meterRegistry;
+    private final String node;
+    private final Path deadLetterFile;
+    private SegmentedLog wal;
+
+    public WalHitIngestor(HitWriter hitWriter,
+                          TransactionTemplate transactionTemplate,
+                          WalCheckpointRepository walCheckpointRepository,
+                          WalProperties walProperties,
+                          IngestProperties ingestProperties,
+                          ObjectMapper objectMapper,
+                          MeterRegistry meterRegistry) {
+        this.hitWriter = hitWriter;
+        this.transactionTemplate = transactionTemplate;
+        this.walCheckpointRepository = walCheckpointRepository;
+        this.walProperties = walProperties;
+        this.objectMapper = objectMapper;
+        this.batchSize = ingestProperties.getBatchSize();
+        this.meterRegistry = meterRegistry;
+        this.node = walProperties.getNodeId() != null ? walProperties.getNodeId() : defaultNodeId(walProperties);
+        this.deadLetterFile = walProperties.getDirectory().resolve(DEAD_LETTER_FILE);
+        this.appendLatency = Timer.builder("stats.wal.append.latency")
+                .description("Time spent appending a hit to the write-ahead log and waiting for the flush")
+                .register(meterRegistry);
+        this.loadedHits = Counter.builder("stats.wal.loaded")
+                .description("Hits moved from the write-ahead log to the database")
+                .register(meterRegistry);
+        this.deadLetters = Counter.builder("stats.wal.dead-letters")
+                .description("Logged hits the database rejected, moved to the dead-letter file")
+                .register(meterRegistry);
+    }
+
+    /**
+     * Opens the log. New segments are numbered after the checkpoint, so they are never mistaken
+     * for segments that have already been loaded.
+     */
+    @PostConstruct
+    public void open() throws IOException {
+        walCheckpointRepository.createIfMissing(node);
+        WalCheckpoint checkpoint = walCheckpointRepository.find(node);
+        wal = new SegmentedLog(walProperties.getDirectory(), (int) walProperties.getSegmentSize().toBytes(),
+                checkpoint.getSegment() + 1);
+        Gauge.builder("stats.wal.segments", wal, WalHitIngestor::countSegments)
+                .description("Write-ahead log segments not yet loaded to the database")
+                .register(meterRegistry);
+        log.info("Opened write-ahead log in {} as node {}, loading from segment {} offset {}",
+                walProperties.getDirectory().toAbsolutePath(), node, checkpoint.getSegment(), checkpoint.getOffset());
+    }
+
+    @PreDestroy
+    public void close() throws IOException {
+        wal.close();
+    }
+
+    /**
+     * Appends a hit validated by {@link ru.practicum.statsserver.stats.mapper.EndpointHitMapper}
+     * and waits until it is on disk.
+     */
+    @Override
+    public void ingest(EndpointHit endpointHit) {
+        byte[] record = encode(endpointHit);
+        appendLatency.record(() -> {
+            try {
+                wal.awaitDurable(wal.append(record));
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                throw new IllegalStateException("Interrupted while flushing the write-ahead log", e);
+            }
+        });
+    }
+
+    /**
+     * Loads everything flushed to the log since the checkpoint and deletes fully loaded segments.
+     * Failures other than rejected hits are retried on the next pass from the last committed checkpoint.
+     */
+    @Scheduled(fixedDelayString = "${stats.wal.load-interval:PT1S}")
+    public void load() {
+        try {
+            loadPending();
+        } catch (IOException | RuntimeException e) {
+            log.warn("Failed to load the write-ahead log, will retry", e);
+        }
+    }
+
+    private void loadPending() throws IOException {
+        WalCheckpoint checkpoint = walCheckpointRepository.find(node);
+        for (long segment : wal.segments()) {
+            if (segment < checkpoint.getSegment()) {
+                wal.delete(segment);
+                continue;
+            }
+            boolean sealed = segment < wal.activeSegment();
+            int from = segment == checkpoint.getSegment() ? checkpoint.getOffset() : 0;
+            List<LoggedHit> batch = new ArrayList<>(batchSize);
+            wal.read(segment, from, (payload, next) -> {
+                batch.add(new LoggedHit(decode(payload), next));
+                if (batch.size() == batchSize) {
+                    commit(segment, batch);
+                    batch.clear();
+                }
+            });
+            if (!sealed) {
+                commit(segment, batch);
+                return;
+            }
+            commit(segment, batch);
+            transactionTemplate.executeWithoutResult(status ->
+                    walCheckpointRepository.save(node, new WalCheckpoint(segment + 1, 0)));
+            wal.delete(segment);
+        }
+    }
+
+    /**
+     * Writes hits read from a segment and moves the checkpoint past them. When the database rejects the
+     * batch, the halves are written separately, down to single hits, which are then dead-lettered.
+     * Other failures, such as a lost connection, are passed on, so the batch is retried as a whole.
+     */
+    private void commit(long segment, List<LoggedHit> batch) {
+        if (batch.isEmpty()) {
+            return;
+        }
+        WalCheckpoint checkpoint = new WalCheckpoint(segment, batch.get(batch.size() - 1).next);
+        List<EndpointHit> hits = batch.stream().map(loggedHit -> loggedHit.hit).toList();
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                hitWriter.write(hits);
+                walCheckpointRepository.save(node, checkpoint);
+            });
+            loadedHits.increment(hits.size());
+        } catch (DataIntegrityViolationException | IllegalArgumentException e) {
+            if (batch.size() == 1) {
+                deadLetter(batch.get(0).hit, e);
+                transactionTemplate.executeWithoutResult(status -> walCheckpointRepository.save(node, checkpoint));
+                return;
+            }
+            int half = batch.size() / 2;
+            commit(segment, batch.subList(0, half));
+            commit(segment, batch.subList(half, batch.size()));
+        }
+    }
+
+    /**
+     * Appends a rejected hit to the dead-letter file in the NDJSON format accepted by POST /hits
+     * and flushes it before the checkpoint moves past the hit.
+     */
+    private void deadLetter(EndpointHit hit, RuntimeException cause) {
+        log.error("Database rejected logged hit {}, moving it to {}", hit, deadLetterFile, cause);
+        EndpointHitDto dto = new EndpointHitDto(hit.getApp(), hit.getUri(), hit.getIp(), hit.getTimestamp());
+        try (FileChannel channel = FileChannel.open(deadLetterFile,
+                StandardOpenOption.CREATE, StandardOpenOption.WRITE, StandardOpenOption.APPEND)) {
+            channel.write(ByteBuffer.wrap((objectMapper.writeValueAsString(dto) + "\n").getBytes(StandardCharsets.UTF_8)));
+            channel.force(true);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+        deadLetters.increment();
+    }
+
+    private static String defaultNodeId(WalProperties walProperties) {
+        String host;
+        try {
+            host = InetAddress.getLocalHost().getHostName();
+        } catch (UnknownHostException e) {
+            host = "localhost";
+        }
+        return host + ":" + walProperties.getDirectory().toAbsolutePath().normalize();
+    }
+
+    private static double countSegments(SegmentedLog wal) {
+        try {
+            return wal.segments().size();
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static byte[] encode(EndpointHit hit) {
+        byte[] app = hit.getApp().getBytes(StandardCharsets.UTF_8);
+        byte[] uri = hit.getUri().getBytes(StandardCharsets.UTF_8);
+        byte[] ip = hit.getIp().getBytes(StandardCharsets.UTF_8);
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + 4 * Integer.BYTES + app.length + uri.length + ip.length);
+        buffer.putLong(hit.getTimestamp().toEpochSecond(ZoneOffset.UTC)).putInt(hit.getTimestamp().getNano());
+        buffer.putInt(app.length).put(app);
+        buffer.putInt(uri.length).put(uri);
+        buffer.putInt(ip.length).put(ip);
+        return buffer.array();
+    }
+
+    private static EndpointHit decode(ByteBuffer buffer) {
+        LocalDateTime timestamp = LocalDateTime.ofEpochSecond(buffer.getLong(), buffer.getInt(), ZoneOffset.UTC);
+        return EndpointHit.builder()
+                .app(getString(buffer))
+                .uri(getString(buffer))
+                .ip(getString(buffer))
+                .timestamp(timestamp)
+                .build();
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] bytes = new byte[buffer.getInt()];
+        buffer.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+
+    /**
+     * Hit read from the log with the offset right after its record.
+     */
+    private static final class LoggedHit {
+        private final EndpointHit hit;
+        private final int next;
+
+        private LoggedHit(EndpointHit hit, int next) {
+            this.hit = hit;
+            this.next = next;
+        }
+    }
+}
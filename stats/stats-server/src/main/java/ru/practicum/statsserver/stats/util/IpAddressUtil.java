@@ -0,0 +1,66 @@
+package ru.practicum.statsserver.stats.util;
+
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+import java.util.regex.Pattern;
+
+public class IpAddressUtil {
+    private static final Pattern IPV4 = Pattern.compile("\\d{1,3}(\\.\\d{1,3}){3}");
+    private static final Pattern IPV6 = Pattern.compile("[0-9a-fA-F:.]*:[0-9a-fA-F:.]*");
+
+    private IpAddressUtil() {
+        throw new IllegalStateException("Utility class");
+    }
+
+    /**
+     * Parses an IPv4 or IPv6 literal. IPv4 octets are parsed here and any value containing a colon is
+     * taken as an IPv6 literal by {@link InetAddress#getByName(String)}, so parsing never triggers a DNS lookup.
+     *
+     * @param ip textual IP address.
+     * @return parsed address.
+     * @throws IllegalArgumentException if the value is not an IP literal.
+     */
+    public static InetAddress parse(String ip) {
+        if (ip == null) {
+            throw new IllegalArgumentException("Invalid IP address: null");
+        }
+        try {
+            if (IPV4.matcher(ip).matches()) {
+                return InetAddress.getByAddress(toIpv4Bytes(ip));
+            }
+            if (IPV6.matcher(ip).matches()) {
+                return InetAddress.getByName(ip);
+            }
+        } catch (UnknownHostException e) {
+            throw new IllegalArgumentException("Invalid IP address: " + ip, e);
+        }
+        throw new IllegalArgumentException("Invalid IP address: " + ip);
+    }
+
+    public static String normalize(String ip) {
+        return parse(ip).getHostAddress();
+    }
+
+    /**
+     * Returns the packed 4 or 16 byte form of an IP address.
+     *
+     * @param ip textual IP address.
+     * @return address bytes.
+     */
+    public static byte[] toBytes(String ip) {
+        return parse(ip).getAddress();
+    }
+
+    private static byte[] toIpv4Bytes(String ip) {
+        String[] octets = ip.split("\\.");
+        byte[] bytes = new byte[octets.length];
+        for (int i = 0; i < octets.length; i++) {
+            int octet = Integer.parseInt(octets[i]);
+            if (octet > 255) {
+                throw new IllegalArgumentException("Invalid IP address: " + ip);
+            }
+            bytes[i] = (byte) octet;
+        }
+        return bytes;
+    }
+}
@@ -0,0 +1,287 @@
+package ru.practicum.statsserver.stats.util;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Matcher;
+import java.util.regex.Pattern;
+import java.util.stream.Stream;
+import java.util.zip.CRC32C;
+
+/**
+ * Append-only log of byte records split into fixed-size memory-mapped segment files.
+ * Each record is stored as its length, a CRC32C checksum and the payload; a zero length or a checksum
+ * mismatch marks the end of a segment, so a record torn by a crash is simply not read back.
+ * Appending only copies the record into the mapping. {@link #awaitDurable} flushes it to disk, and
+ * concurrent callers share one flush: the first waiter forces the segment and the rest wait for it.
+ * Appending always starts a new segment, existing segments are only read.
+ * State is guarded by a {@link ReentrantLock} rather than a monitor, so threads waiting for a flush
+ * never pin the carrier of a virtual thread.
+ */
+public class SegmentedLog implements Closeable {
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+    private static final Pattern SEGMENT_NAME = Pattern.compile("segment-(\\d{20})\\.log");
+
+    private final Path directory;
+    private final int segmentSize;
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition flushDone = lock.newCondition();
+    private Segment active;
+    private long written;
+    private long durable;
+    private long durableSegment;
+    private int durableOffset;
+    private boolean syncing;
+
+    /**
+     * Opens a log and starts a new segment after all existing ones.
+     *
+     * @param directory   directory holding the segment files, created if missing.
+     * @param segmentSize size of a segment file in bytes.
+     * @param minSegment  lowest sequence number the new segment may get.
+     * @throws IOException if the directory or the segment file cannot be created.
+     */
+    public SegmentedLog(Path directory, int segmentSize, long minSegment) throws IOException {
+        this.directory = directory;
+        this.segmentSize = segmentSize;
+        Files.createDirectories(directory);
+        List<Long> segments = segments();
+        long last = segments.isEmpty() ? minSegment - 1 : Math.max(segments.get(segments.size() - 1), minSegment - 1);
+        this.active = openSegment(last + 1);
+        this.durableSegment = active.sequence;
+    }
+
+    /**
+     * Copies a record to the active segment, starting a new segment when it does not fit.
+     *
+     * @param payload record to append.
+     * @return position to pass to {@link #awaitDurable}.
+     */
+    public long append(byte[] payload) {
+        int size = HEADER_SIZE + payload.length;
+        if (size > segmentSize) {
+            throw new IllegalArgumentException("Record of " + payload.length + " bytes does not fit in a segment");
+        }
+        CRC32C crc = new CRC32C();
+        crc.update(payload);
+        lock.lock();
+        try {
+            if (active.buffer.remaining() < size) {
+                roll();
+            }
+            active.buffer.putInt(payload.length).putInt((int) crc.getValue()).put(payload);
+            written += size;
+            return written;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Blocks until every record up to a position is flushed to disk.
+     *
+     * @param position position returned by {@link #append}.
+     * @throws InterruptedException if interrupted while another thread flushes.
+     */
+    public void awaitDurable(long position) throws InterruptedException {
+        Segment segment;
+        int from;
+        int offset;
+        long target;
+        lock.lock();
+        try {
+            while (durable < position && syncing) {
+                flushDone.await();
+            }
+            if (durable >= position) {
+                return;
+            }
+            syncing = true;
+            segment = active;
+            from = segment.sequence == durableSegment ? durableOffset : 0;
+            offset = active.buffer.position();
+            target = written;
+        } finally {
+            lock.unlock();
+        }
+        boolean flushed = false;
+        try {
+            segment.buffer.force(from, offset - from);
+            flushed = true;
+        } finally {
+            lock.lock();
+            try {
+                syncing = false;
+                if (flushed) {
+                    markDurable(segment.sequence, offset, target);
+                }
+                flushDone.signalAll();
+            } finally {
+                lock.unlock();
+            }
+        }
+    }
+
+    /**
+     * Lists the sequence numbers of the segment files in ascending order.
+     */
+    public List<Long> segments() throws IOException {
+        List<Long> segments = new ArrayList<>();
+        try (Stream<Path> files = Files.list(directory)) {
+            files.forEach(file -> {
+                Matcher matcher = SEGMENT_NAME.matcher(file.getFileName().toString());
+                if (matcher.matches()) {
+                    segments.add(Long.parseLong(matcher.group(1)));
+                }
+            });
+        }
+        segments.sort(null);
+        return segments;
+    }
+
+    /**
+     * Returns the sequence number of the segment currently appended to.
+     */
+    public long activeSegment() {
+        lock.lock();
+        try {
+            return active.sequence;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Reads the durable records of a segment starting at an offset.
+     *
+     * @param segment sequence number of the segment.
+     * @param offset  offset of the first record to read.
+     * @param handler receives each record with the offset right after it.
+     * @return offset after the last record read.
+     * @throws IOException if the segment cannot be read.
+     */
+    public int read(long segment, int offset, RecordHandler handler) throws IOException {
+        int limit = durableLimit(segment);
+        if (offset >= limit) {
+            return offset;
+        }
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ)) {
+            ByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, Math.min(limit, channel.size()));
+            buffer.position(offset);
+            while (buffer.remaining() >= HEADER_SIZE) {
+                int length = buffer.getInt();
+                int checksum = buffer.getInt();
+                if (length <= 0 || length > buffer.remaining()) {
+                    break;
+                }
+                ByteBuffer payload = buffer.slice(buffer.position(), length);
+                CRC32C crc = new CRC32C();
+                crc.update(payload.duplicate());
+                if ((int) crc.getValue() != checksum) {
+                    break;
+                }
+                buffer.position(buffer.position() + length);
+                offset = buffer.position();
+                handler.accept(payload, offset);
+            }
+        }
+        return offset;
+    }
+
+    /**
+     * Deletes a segment that is no longer appended to.
+     */
+    public void delete(long segment) throws IOException {
+        if (segment >= activeSegment()) {
+            throw new IllegalArgumentException("Active segment " + segment + " cannot be deleted");
+        }
+        Files.deleteIfExists(segmentPath(segment));
+    }
+
+    @Override
+    public void close() throws IOException {
+        lock.lock();
+        try {
+            active.buffer.force();
+            active.channel.close();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Returns how far a segment may be read: all of it once it is no longer appended to,
+     * otherwise up to the last flush.
+     */
+    private int durableLimit(long segment) {
+        lock.lock();
+        try {
+            if (segment < active.sequence) {
+                return segmentSize;
+            }
+            return segment == durableSegment ? durableOffset : 0;
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void roll() {
+        active.buffer.force();
+        markDurable(active.sequence, active.buffer.position(), written);
+        try {
+            active.channel.close();
+            active = openSegment(active.sequence + 1);
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private void markDurable(long segment, int offset, long position) {
+        if (position > durable) {
+            durable = position;
+            durableSegment = segment;
+            durableOffset = offset;
+        }
+    }
+
+    private Segment openSegment(long sequence) throws IOException {
+        FileChannel channel = FileChannel.open(segmentPath(sequence),
+                StandardOpenOption.CREATE_NEW, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentSize);
+        try (FileChannel dir = FileChannel.open(directory, StandardOpenOption.READ)) {
+            dir.force(true);
+        }
+        return new Segment(sequence, channel, buffer);
+    }
+
+    private Path segmentPath(long sequence) {
+        return directory.resolve(String.format("segment-%020d.log", sequence));
+    }
+
+    @FunctionalInterface
+    public interface RecordHandler {
+        void accept(ByteBuffer payload, int nextOffset) throws IOException;
+    }
+
+    private static final class Segment {
+        private final long sequence;
+        private final FileChannel channel;
+        private final MappedByteBuffer buffer;
+
+        private Segment(long sequence, FileChannel channel, MappedByteBuffer buffer) {
+            this.sequence = sequence;
+            this.channel = channel;
+            this.buffer = buffer;
+        }
+    }
+}
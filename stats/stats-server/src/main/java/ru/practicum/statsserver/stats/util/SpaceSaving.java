@@ -0,0 +1,73 @@
+package ru.practicum.statsserver.stats.util;
+
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.TreeSet;
+
+/**
+ * Space-Saving summary of the most frequent keys of a stream using a fixed number of counters.
+ * A monitored key's count exceeds its true count by at most its error, and any key that is not
+ * monitored has a true count of at most {@link #minCount()}. Not thread-safe.
+ */
+public class SpaceSaving {
+    private final int capacity;
+    private final Map<Long, Counter> counters = new HashMap<>();
+    private final TreeSet<Counter> byCount = new TreeSet<>(Comparator.comparingLong((Counter c) -> c.count)
+            .thenComparingLong(c -> c.key));
+
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive");
+        }
+        this.capacity = capacity;
+    }
+
+    public void add(long key, long count) {
+        Counter counter = counters.get(key);
+        if (counter == null) {
+            if (counters.size() < capacity) {
+                counter = new Counter(key, 0, 0);
+            } else {
+                Counter evicted = byCount.pollFirst();
+                counters.remove(evicted.key);
+                counter = new Counter(key, evicted.count, evicted.count);
+            }
+            counters.put(key, counter);
+        } else {
+            byCount.remove(counter);
+        }
+        counter.count += count;
+        byCount.add(counter);
+    }
+
+    /**
+     * Returns the upper bound of the count of any key that is not monitored.
+     */
+    public long minCount() {
+        return counters.size() < capacity ? 0 : byCount.first().count;
+    }
+
+    public void forEach(CounterHandler handler) {
+        for (Counter counter : counters.values()) {
+            handler.handle(counter.key, counter.count, counter.error);
+        }
+    }
+
+    @FunctionalInterface
+    public interface CounterHandler {
+        void handle(long key, long count, long error);
+    }
+
+    private static final class Counter {
+        private final long key;
+        private final long error;
+        private long count;
+
+        private Counter(long key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+}
@@ -0,0 +1,76 @@
+CREATE TABLE IF NOT EXISTS stats_app (
+    id   INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS stats_uri (
+    id   INT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name VARCHAR(255) NOT NULL UNIQUE
+);
+
+CREATE TABLE IF NOT EXISTS stats (
+    id        BIGINT GENERATED BY DEFAULT AS IDENTITY,
+    app_id    INT          NOT NULL,
+    uri_id    INT          NOT NULL,
+    ip        INET         NOT NULL,
+    timestamp TIMESTAMP    NOT NULL,
+    PRIMARY KEY (id, timestamp)
+) PARTITION BY RANGE (timestamp);
+
+CREATE TABLE IF NOT EXISTS stats_default PARTITION OF stats DEFAULT;
+
+CREATE INDEX IF NOT EXISTS idx_stats_timestamp ON stats (timestamp);
+CREATE INDEX IF NOT EXISTS idx_stats_uri_timestamp ON stats (uri_id, timestamp) INCLUDE (app_id, ip);
+
+CREATE TABLE IF NOT EXISTS stats_minute (
+    app_id INT       NOT NULL,
+    uri_id INT       NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits   BIGINT    NOT NULL,
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+
+CREATE TABLE IF NOT EXISTS stats_hour (
+    app_id INT       NOT NULL,
+    uri_id INT       NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits   BIGINT    NOT NULL,
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stats_minute_bucket ON stats_minute (bucket);
+CREATE INDEX IF NOT EXISTS idx_stats_hour_bucket ON stats_hour (bucket);
+
+CREATE TABLE IF NOT EXISTS stats_ip_sketch (
+    app_id INT       NOT NULL,
+    uri_id INT       NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    sketch BYTEA     NOT NULL,
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stats_ip_sketch_bucket ON stats_ip_sketch (bucket);
+
+CREATE TABLE IF NOT EXISTS stats_wal_checkpoints (
+    node     VARCHAR(255) PRIMARY KEY,
+    segment  BIGINT       NOT NULL,
+    "offset" INT          NOT NULL
+);
+
+CREATE TABLE IF NOT EXISTS stats_day (
+    app_id INT       NOT NULL,
+    uri_id INT       NOT NULL,
+    bucket TIMESTAMP NOT NULL,
+    hits   BIGINT    NOT NULL DEFAULT 0,
+    sketch BYTEA     NOT NULL DEFAULT '',
+    PRIMARY KEY (uri_id, bucket, app_id)
+);
+
+CREATE INDEX IF NOT EXISTS idx_stats_day_bucket ON stats_day (bucket);
+
+CREATE TABLE IF NOT EXISTS stats_compaction (
+    id               INT PRIMARY KEY CHECK (id = 1),
+    compacted_before TIMESTAMP
+);
+
+INSERT INTO stats_compaction (id, compacted_before) VALUES (1, NULL) ON CONFLICT DO NOTHING;
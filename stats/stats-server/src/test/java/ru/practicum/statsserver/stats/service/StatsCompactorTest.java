@@ -0,0 +1,79 @@
+package ru.practicum.statsserver.stats.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.statsserver.stats.config.CompactionProperties;
+import ru.practicum.statsserver.stats.repository.CompactionRepository;
+import ru.practicum.statsserver.stats.repository.SketchRepository;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatsCompactorTest {
+    private static final Duration AGE = Duration.ofDays(30);
+
+    private CompactionRepository compactionRepository;
+    private CompactionProperties compactionProperties;
+    private StatsCompactor statsCompactor;
+    private LocalDateTime cutoff;
+
+    @BeforeEach
+    void setUp() {
+        compactionRepository = mock(CompactionRepository.class);
+        compactionProperties = new CompactionProperties();
+        compactionProperties.setAge(AGE);
+        statsCompactor = new StatsCompactor(compactionRepository, mock(SketchRepository.class),
+                mock(StatsQueryCache.class), mock(TransactionTemplate.class), compactionProperties,
+                new SimpleMeterRegistry());
+        cutoff = LocalDate.now().atStartOfDay().minus(AGE);
+    }
+
+    @Test
+    void answersFromLoadedBoundaryBeforeIt() {
+        loadBoundary(cutoff.minusDays(1));
+
+        assertThat(statsCompactor.isCompacted(cutoff.minusDays(2))).isTrue();
+        verify(compactionRepository, times(1)).findCompactedBefore();
+    }
+
+    @Test
+    void reloadsBoundaryMovedByAnotherInstance() {
+        loadBoundary(cutoff.minusDays(1));
+        when(compactionRepository.findCompactedBefore()).thenReturn(Optional.of(cutoff));
+
+        assertThat(statsCompactor.isCompacted(cutoff.minusHours(12))).isTrue();
+        assertThat(statsCompactor.getCompactedBefore()).isEqualTo(cutoff);
+    }
+
+    @Test
+    void doesNotReloadForTimesNoInstanceCanHaveCompacted() {
+        loadBoundary(cutoff);
+
+        assertThat(statsCompactor.isCompacted(cutoff.plusDays(2))).isFalse();
+        verify(compactionRepository, times(1)).findCompactedBefore();
+    }
+
+    @Test
+    void neverReloadsWithoutCompactionAge() {
+        compactionProperties.setAge(null);
+        loadBoundary(null);
+
+        assertThat(statsCompactor.isCompacted(LocalDateTime.now().minusYears(1))).isFalse();
+        verify(compactionRepository, times(1)).findCompactedBefore();
+    }
+
+    private void loadBoundary(LocalDateTime boundary) {
+        when(compactionRepository.findCompactedBefore()).thenReturn(Optional.ofNullable(boundary));
+        statsCompactor.refresh();
+    }
+}
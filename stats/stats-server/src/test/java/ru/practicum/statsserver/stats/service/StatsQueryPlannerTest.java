@@ -0,0 +1,114 @@
+package ru.practicum.statsserver.stats.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.statsserver.stats.model.QuerySegment;
+import ru.practicum.statsserver.stats.model.StatsTier;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class StatsQueryPlannerTest {
+    private StatsCompactor statsCompactor;
+    private StatsQueryPlanner planner;
+
+    @BeforeEach
+    void setUp() {
+        statsCompactor = mock(StatsCompactor.class);
+        planner = new StatsQueryPlanner(statsCompactor);
+    }
+
+    @Test
+    void readsRangeWithinOneMinuteFromRawHits() {
+        assertThat(planner.plan(at("10:00:10"), at("10:00:50")))
+                .containsExactly(segment(StatsTier.RAW, "10:00:10", "10:00:50"));
+    }
+
+    @Test
+    void splitsAtMinuteBoundaries() {
+        assertThat(planner.plan(at("10:00:30"), at("10:05:15"))).containsExactly(
+                segment(StatsTier.RAW, "10:00:30", "10:01:00"),
+                segment(StatsTier.MINUTE, "10:01:00", "10:05:00"),
+                segment(StatsTier.RAW, "10:05:00", "10:05:15"));
+    }
+
+    @Test
+    void splitsAtHourBoundaries() {
+        assertThat(planner.plan(at("10:00:30"), at("12:30:15"))).containsExactly(
+                segment(StatsTier.RAW, "10:00:30", "10:01:00"),
+                segment(StatsTier.MINUTE, "10:01:00", "11:00:00"),
+                segment(StatsTier.HOUR, "11:00:00", "12:00:00"),
+                segment(StatsTier.MINUTE, "12:00:00", "12:30:00"),
+                segment(StatsTier.RAW, "12:30:00", "12:30:15"));
+    }
+
+    @Test
+    void readsAlignedRangeFromOneTier() {
+        assertThat(planner.plan(at("10:00:00"), at("13:00:00")))
+                .containsExactly(segment(StatsTier.HOUR, "10:00:00", "13:00:00"));
+        assertThat(planner.plan(at("10:15:00"), at("10:45:00")))
+                .containsExactly(segment(StatsTier.MINUTE, "10:15:00", "10:45:00"));
+    }
+
+    @Test
+    void readsNothingForEmptyRange() {
+        assertThat(planner.plan(at("10:00:00"), at("10:00:00"))).isEmpty();
+    }
+
+    @Test
+    void readsNoTierCoarserThanRequestedUnit() {
+        assertThat(planner.plan(at("10:00:30"), at("12:30:15"), ChronoUnit.MINUTES)).containsExactly(
+                segment(StatsTier.RAW, "10:00:30", "10:01:00"),
+                segment(StatsTier.MINUTE, "10:01:00", "12:30:00"),
+                segment(StatsTier.RAW, "12:30:00", "12:30:15"));
+    }
+
+    @Test
+    void readsCompactedDaysAsWholeDays() {
+        compactedBefore(LocalDateTime.parse("2026-10-10T00:00:00"));
+
+        assertThat(planner.plan(LocalDateTime.parse("2026-10-08T05:30:00"), at("01:30:20"))).containsExactly(
+                new QuerySegment(StatsTier.DAY, LocalDateTime.parse("2026-10-08T00:00:00"),
+                        LocalDateTime.parse("2026-10-10T00:00:00")),
+                segment(StatsTier.HOUR, "00:00:00", "01:00:00"),
+                segment(StatsTier.MINUTE, "01:00:00", "01:30:00"),
+                segment(StatsTier.RAW, "01:30:00", "01:30:20"));
+    }
+
+    @Test
+    void widensRangeBeforeCompactionBoundaryToWholeDays() {
+        compactedBefore(LocalDateTime.parse("2026-10-10T00:00:00"));
+
+        assertThat(planner.plan(LocalDateTime.parse("2026-10-08T05:30:00"),
+                LocalDateTime.parse("2026-10-09T03:00:00"))).containsExactly(
+                new QuerySegment(StatsTier.DAY, LocalDateTime.parse("2026-10-08T00:00:00"),
+                        LocalDateTime.parse("2026-10-10T00:00:00")));
+    }
+
+    @Test
+    void ignoresCompactionBoundaryBeforeRange() {
+        compactedBefore(LocalDateTime.parse("2026-10-01T00:00:00"));
+
+        assertThat(planner.plan(at("10:00:00"), at("11:00:00")))
+                .containsExactly(segment(StatsTier.HOUR, "10:00:00", "11:00:00"));
+    }
+
+    private void compactedBefore(LocalDateTime boundary) {
+        when(statsCompactor.getCompactedBefore()).thenReturn(boundary);
+        when(statsCompactor.isCompacted(any()))
+                .thenAnswer(invocation -> invocation.<LocalDateTime>getArgument(0).isBefore(boundary));
+    }
+
+    private static LocalDateTime at(String time) {
+        return LocalDateTime.parse("2026-10-10T" + time);
+    }
+
+    private static QuerySegment segment(StatsTier tier, String from, String to) {
+        return new QuerySegment(tier, at(from), at(to));
+    }
+}
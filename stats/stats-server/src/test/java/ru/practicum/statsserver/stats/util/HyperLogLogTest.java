@@ -0,0 +1,119 @@
+package ru.practicum.statsserver.stats.util;
+
+import org.junit.jupiter.api.Test;
+
+import java.nio.ByteBuffer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+    private static final int REGISTERS = 4096;
+    private static final double MAX_ERROR = 0.05;
+
+    @Test
+    void readsEmptyBytesAsEmptySketch() {
+        assertThat(HyperLogLog.fromBytes(new byte[0]).estimate()).isZero();
+        assertThat(HyperLogLog.fromBytes(null).estimate()).isZero();
+        assertThat(new HyperLogLog().toBytes()).containsExactly(1);
+    }
+
+    @Test
+    void roundTripsSparseSketch() {
+        HyperLogLog sketch = sketchOf(0, 100);
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(bytes[0]).isEqualTo((byte) 1);
+        assertThat(bytes.length).isLessThan(1 + REGISTERS);
+        assertThat((bytes.length - 1) % 3).isZero();
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void roundTripsDenseSketch() {
+        HyperLogLog sketch = sketchOf(0, 100_000);
+
+        byte[] bytes = sketch.toBytes();
+        HyperLogLog restored = HyperLogLog.fromBytes(bytes);
+
+        assertThat(bytes[0]).isEqualTo((byte) 0);
+        assertThat(bytes).hasSize(1 + REGISTERS);
+        assertThat(restored.toBytes()).isEqualTo(bytes);
+        assertThat(restored.estimate()).isEqualTo(sketch.estimate());
+    }
+
+    @Test
+    void estimatesWithinErrorBounds() {
+        for (int count : new int[]{10, 1_000, 10_000, 1_000_000}) {
+            assertThat((double) sketchOf(0, count).estimate()).isCloseTo(count, within(count * MAX_ERROR));
+        }
+    }
+
+    @Test
+    void ignoresRepeatedValues() {
+        HyperLogLog sketch = sketchOf(0, 1_000);
+        long estimate = sketch.estimate();
+
+        for (int i = 0; i < 10; i++) {
+            addRange(sketch, 0, 1_000);
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(estimate);
+    }
+
+    @Test
+    void mergesIntoSketchOfUnion() {
+        HyperLogLog first = sketchOf(0, 60_000);
+        HyperLogLog second = sketchOf(40_000, 100_000);
+
+        first.merge(second);
+
+        assertThat(first.toBytes()).isEqualTo(sketchOf(0, 100_000).toBytes());
+        assertThat((double) first.estimate()).isCloseTo(100_000, within(100_000 * MAX_ERROR));
+    }
+
+    @Test
+    void mergesSparseSketchesRestoredFromBytes() {
+        HyperLogLog merged = new HyperLogLog();
+        for (int from = 0; from < 5_000; from += 100) {
+            merged.merge(HyperLogLog.fromBytes(sketchOf(from, from + 100).toBytes()));
+        }
+
+        assertThat(merged.toBytes()).isEqualTo(sketchOf(0, 5_000).toBytes());
+        assertThat((double) merged.estimate()).isCloseTo(5_000, within(5_000 * MAX_ERROR));
+    }
+
+    @Test
+    void mergingTwiceChangesNothing() {
+        HyperLogLog sketch = sketchOf(0, 1_000);
+        HyperLogLog other = sketchOf(500, 2_000);
+        sketch.merge(other);
+        byte[] once = sketch.toBytes();
+
+        sketch.merge(other);
+
+        assertThat(sketch.toBytes()).isEqualTo(once);
+    }
+
+    @Test
+    void rejectsUnknownFormat() {
+        assertThatThrownBy(() -> HyperLogLog.fromBytes(new byte[]{7}))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static HyperLogLog sketchOf(int from, int to) {
+        HyperLogLog sketch = new HyperLogLog();
+        addRange(sketch, from, to);
+        return sketch;
+    }
+
+    private static void addRange(HyperLogLog sketch, int from, int to) {
+        for (int i = from; i < to; i++) {
+            sketch.add(ByteBuffer.allocate(Integer.BYTES).putInt(i).array());
+        }
+    }
+}
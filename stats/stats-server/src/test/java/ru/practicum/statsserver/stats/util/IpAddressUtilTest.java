@@ -0,0 +1,50 @@
+package ru.practicum.statsserver.stats.util;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IpAddressUtilTest {
+
+    @Test
+    void parsesIpv4Literal() {
+        assertThat(IpAddressUtil.toBytes("192.168.0.255")).containsExactly(192, 168, 0, 255);
+        assertThat(IpAddressUtil.normalize("010.0.0.1")).isEqualTo("10.0.0.1");
+    }
+
+    @Test
+    void normalizesIpv6Literal() {
+        assertThat(IpAddressUtil.normalize("2001:DB8:0:0:0:0:0:1")).isEqualTo("2001:db8:0:0:0:0:0:1");
+        assertThat(IpAddressUtil.toBytes("::1")).hasSize(16);
+    }
+
+    /**
+     * An out-of-range octet is rejected without a cause: it never reaches the resolver,
+     * which would have looked the value up as a host name.
+     */
+    @Test
+    void rejectsIpv4OctetAbove255WithoutLookup() {
+        assertThatThrownBy(() -> IpAddressUtil.parse("999.1.1.1"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasNoCause();
+        assertThatThrownBy(() -> IpAddressUtil.parse("1.1.1.256"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasNoCause();
+    }
+
+    @Test
+    void rejectsHostNames() {
+        assertThatThrownBy(() -> IpAddressUtil.parse("localhost"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasNoCause();
+        assertThatThrownBy(() -> IpAddressUtil.parse(null))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void rejectsMalformedIpv6() {
+        assertThatThrownBy(() -> IpAddressUtil.parse("1:2:3:4:5:6:7:8:9"))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,133 @@
+package ru.practicum.statsserver.stats.util;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SegmentedLogTest {
+    private static final int SEGMENT_SIZE = 4096;
+    private static final int HEADER_SIZE = 2 * Integer.BYTES;
+
+    @TempDir
+    Path directory;
+
+    @Test
+    void readsRecordsOfSealedSegmentAfterReopening() throws IOException, InterruptedException {
+        writeRecords("first", "second", "third");
+
+        try (SegmentedLog log = new SegmentedLog(directory, SEGMENT_SIZE, 1)) {
+            assertThat(log.segments()).containsExactly(1L, 2L);
+            assertThat(log.activeSegment()).isEqualTo(2);
+            assertThat(readAll(log, 1, 0)).containsExactly("first", "second", "third");
+        }
+    }
+
+    @Test
+    void stopsAtRecordWithBadChecksum() throws IOException, InterruptedException {
+        writeRecords("first", "second", "third");
+        int thirdPayload = 2 * HEADER_SIZE + "first".length() + "second".length() + HEADER_SIZE;
+        overwrite(thirdPayload, "X".getBytes(StandardCharsets.UTF_8));
+
+        try (SegmentedLog log = new SegmentedLog(directory, SEGMENT_SIZE, 1)) {
+            List<String> records = new ArrayList<>();
+            int end = log.read(1, 0, (payload, next) -> records.add(decode(payload)));
+
+            assertThat(records).containsExactly("first", "second");
+            assertThat(end).isEqualTo(2 * HEADER_SIZE + "first".length() + "second".length());
+        }
+    }
+
+    @Test
+    void stopsAtRecordWhoseLengthRunsPastTheSegment() throws IOException, InterruptedException {
+        writeRecords("first");
+        int tail = HEADER_SIZE + "first".length();
+        overwrite(tail, ByteBuffer.allocate(Integer.BYTES).putInt(SEGMENT_SIZE).array());
+
+        try (SegmentedLog log = new SegmentedLog(directory, SEGMENT_SIZE, 1)) {
+            assertThat(readAll(log, 1, 0)).containsExactly("first");
+        }
+    }
+
+    @Test
+    void resumesReadingFromReturnedOffset() throws IOException, InterruptedException {
+        writeRecords("first", "second", "third");
+
+        try (SegmentedLog log = new SegmentedLog(directory, SEGMENT_SIZE, 1)) {
+            int end = log.read(1, 0, (payload, next) -> {
+            });
+            List<String> records = new ArrayList<>();
+            log.read(1, HEADER_SIZE + "first".length(), (payload, next) -> records.add(decode(payload)));
+
+            assertThat(end).isEqualTo(3 * HEADER_SIZE + "first".length() + "second".length() + "third".length());
+            assertThat(records).containsExactly("second", "third");
+        }
+    }
+
+    @Test
+    void readsActiveSegmentOnlyUpToLastFlush() throws IOException, InterruptedException {
+        try (SegmentedLog log = new SegmentedLog(directory, SEGMENT_SIZE, 1)) {
+            log.awaitDurable(log.append(encode("flushed")));
+            log.append(encode("pending"));
+
+            assertThat(readAll(log, 1, 0)).containsExactly("flushed");
+        }
+    }
+
+    @Test
+    void rollsToNewSegmentWhenRecordDoesNotFit() throws IOException, InterruptedException {
+        byte[] large = new byte[SEGMENT_SIZE / 2];
+        try (SegmentedLog log = new SegmentedLog(directory, SEGMENT_SIZE, 5)) {
+            log.append(large);
+            log.awaitDurable(log.append(large));
+
+            assertThat(log.segments()).containsExactly(5L, 6L);
+            assertThat(log.read(5, 0, (payload, next) -> {
+            })).isEqualTo(HEADER_SIZE + large.length);
+            assertThat(log.read(6, 0, (payload, next) -> {
+            })).isEqualTo(HEADER_SIZE + large.length);
+        }
+    }
+
+    private void writeRecords(String... records) throws IOException, InterruptedException {
+        try (SegmentedLog log = new SegmentedLog(directory, SEGMENT_SIZE, 1)) {
+            long position = 0;
+            for (String record : records) {
+                position = log.append(encode(record));
+            }
+            log.awaitDurable(position);
+        }
+    }
+
+    private void overwrite(int offset, byte[] bytes) throws IOException {
+        try (FileChannel channel = FileChannel.open(directory.resolve(String.format("segment-%020d.log", 1)),
+                StandardOpenOption.WRITE)) {
+            channel.write(ByteBuffer.wrap(bytes), offset);
+        }
+    }
+
+    private static List<String> readAll(SegmentedLog log, long segment, int offset) throws IOException {
+        List<String> records = new ArrayList<>();
+        log.read(segment, offset, (payload, next) -> records.add(decode(payload)));
+        return records;
+    }
+
+    private static byte[] encode(String record) {
+        return record.getBytes(StandardCharsets.UTF_8);
+    }
+
+    private static String decode(ByteBuffer payload) {
+        byte[] bytes = new byte[payload.remaining()];
+        payload.get(bytes);
+        return new String(bytes, StandardCharsets.UTF_8);
+    }
+}